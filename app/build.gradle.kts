@@ -60,6 +60,9 @@ dependencies {
     // Glide for image loading
     implementation("com.github.bumptech.glide:glide:4.16.0")
     annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
+    implementation("com.github.bumptech.glide:recyclerview-integration:4.16.0") {
+        isTransitive = false
+    }
 
     // Room for offline caching
     implementation("androidx.room:room-runtime:2.6.1")
@@ -77,12 +80,16 @@ dependencies {
 
     implementation("androidx.swiperefreshlayout:swiperefreshlayout:1.1.0")
 
+    // WorkManager for background cart sync
+    implementation("androidx.work:work-runtime:2.9.1")
+
     // Add these to your dependencies in build.gradle
     implementation ("org.osmdroid:osmdroid-android:6.1.16")
 
 
     // Testing
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
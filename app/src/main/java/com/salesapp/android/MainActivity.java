@@ -26,8 +26,10 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.salesapp.android.data.model.response.AuthResponse;
 import com.salesapp.android.data.preference.PreferenceManager;
 import com.salesapp.android.data.repository.AuthRepository;
-import com.salesapp.android.service.CartNotificationService;
+import com.salesapp.android.data.repository.CartRepository;
+import com.salesapp.android.service.CartSyncScheduler;
 import com.salesapp.android.ui.auth.LoginActivity;
+import com.salesapp.android.ui.debug.ImageDebugFragment;
 import com.salesapp.android.ui.product.ProductsFragment;
 import com.salesapp.android.ui.product.admin.AdminProductManagementFragment;
 
@@ -98,20 +100,19 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
-        // Update cart badge
-        updateCartBadge();
+        // Keep the cart badge in sync with the shared cart state
+        com.salesapp.android.utils.BadgeUtils.bindCartBadge(this, bottomNavigationView);
 
-        // Start cart notification service
-        startCartNotificationService();
+        // Keep the cart notification up to date in the background
+        scheduleCartSync();
 
         // Request notification permission for Android 13+
         requestNotificationPermission();
     }
 
-    private void startCartNotificationService() {
+    private void scheduleCartSync() {
         if (preferenceManager.isLoggedIn()) {
-            Intent serviceIntent = new Intent(this, CartNotificationService.class);
-            startService(serviceIntent);
+            CartSyncScheduler.schedule(this);
         }
     }
 
@@ -148,8 +149,8 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void updateCartBadge() {
-        // Use BadgeUtils to update the cart badge
-        com.salesapp.android.utils.BadgeUtils.updateCartBadge(this, bottomNavigationView);
+        // Refresh the cart; the badge follows the shared cart state
+        com.salesapp.android.utils.BadgeUtils.updateCartBadge(this);
     }
 
     private void loadFragment(Fragment fragment) {
@@ -173,6 +174,7 @@ public class MainActivity extends AppCompatActivity {
         TextView textViewEmail = dialogView.findViewById(R.id.textViewEmail);
         Button buttonLogout = dialogView.findViewById(R.id.buttonLogout);
         Button buttonAdminPanel = dialogView.findViewById(R.id.buttonAdminPanel);
+        Button buttonImageDiagnostics = dialogView.findViewById(R.id.buttonImageDiagnostics);
 
         textViewUsername.setText(preferenceManager.getUsername());
         textViewEmail.setText(preferenceManager.getEmail());
@@ -191,8 +193,16 @@ public class MainActivity extends AppCompatActivity {
                     e.printStackTrace();
                 }
             });
+
+            // Image cache and prefetch statistics
+            buttonImageDiagnostics.setVisibility(View.VISIBLE);
+            buttonImageDiagnostics.setOnClickListener(v -> {
+                dialog.dismiss();
+                loadFragment(new ImageDebugFragment());
+            });
         } else {
             buttonAdminPanel.setVisibility(View.GONE);
+            buttonImageDiagnostics.setVisibility(View.GONE);
         }
 
         // Set logout click listener
@@ -238,6 +248,8 @@ public class MainActivity extends AppCompatActivity {
 
                 // Clear preferences and redirect to login
                 preferenceManager.logout();
+                CartRepository.resetSharedState();
+                CartSyncScheduler.cancel(MainActivity.this);
 
                 // Show success message
                 Toast.makeText(MainActivity.this, "Logged out successfully", Toast.LENGTH_SHORT).show();
@@ -261,6 +273,8 @@ public class MainActivity extends AppCompatActivity {
 
                 // Even if API call fails, clear local data and redirect to login
                 preferenceManager.logout();
+                CartRepository.resetSharedState();
+                CartSyncScheduler.cancel(MainActivity.this);
                 Intent intent = new Intent(MainActivity.this, LoginActivity.class);
                 intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                 startActivity(intent);
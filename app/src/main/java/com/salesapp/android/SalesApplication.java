@@ -0,0 +1,37 @@
+package com.salesapp.android;
+
+import android.app.Application;
+
+import com.salesapp.android.data.api.ApiClient;
+import com.salesapp.android.data.repository.CartRepository;
+import com.salesapp.android.data.repository.CartStore;
+import com.salesapp.android.image.ImageCachePolicy;
+import com.salesapp.android.service.CartSyncScheduler;
+import com.salesapp.android.service.ImagePrefetchScheduler;
+import com.salesapp.android.utils.CartNotificationManager;
+
+public class SalesApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Enable the on-disk HTTP cache before any repository builds a client
+        ApiClient.init(this);
+
+        // The cart notification follows the shared cart state for the life of the process
+        CartNotificationManager cartNotificationManager = new CartNotificationManager(this);
+        CartStore.getInstance().getCart().observeForever(cartNotificationManager::showForCart);
+
+        // Changes made on this device restart background cart sync at its shortest interval
+        CartRepository.setMutationListener(cart -> CartSyncScheduler.onCartChangedLocally(this, cart));
+
+        // Warm the image cache with the catalog while the device is charging on Wi-Fi
+        ImagePrefetchScheduler.schedule(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ImageCachePolicy.onTrimMemory(level);
+    }
+}
@@ -1,57 +1,212 @@
 package com.salesapp.android.data.api;
 
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
 import com.salesapp.android.utils.Constants;
 
+import java.io.File;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
+/**
+ * Process-wide HTTP stack. All clients handed out here are derived from a single
+ * {@link OkHttpClient}, so they share one connection pool and one dispatcher.
+ */
 public class ApiClient {
-    private static Retrofit retrofit = null;
     private static final int REQUEST_TIMEOUT = 60;
+    private static final long HTTP_CACHE_SIZE = 10L * 1024 * 1024;
 
-    public static Retrofit getClient() {
-        if (retrofit == null) {
+    private static String baseUrl = Constants.BASE_URL;
+    private static Cache cache = null;
+    private static OkHttpClient httpClient = null;
+    private static Retrofit retrofit = null;
+
+    // Authenticated client for the most recently used token
+    private static Retrofit authRetrofit = null;
+    private static String authToken = null;
+
+    private static final Map<Class<?>, Object> services = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Object> authServices = new ConcurrentHashMap<>();
+
+    // Clients for streamed downloads, which log headers only, and the authenticated one for the
+    // most recent token. Kept apart from the clients above so neither evicts the other.
+    private static OkHttpClient streamingHttpClient = null;
+    private static Retrofit streamingRetrofit = null;
+    private static Retrofit streamingAuthRetrofit = null;
+    private static String streamingAuthToken = null;
+    private static final Map<Class<?>, Object> streamingServices = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Object> streamingAuthServices = new ConcurrentHashMap<>();
+
+    /**
+     * Install the on-disk HTTP cache. Call once from Application.onCreate, before any client is built.
+     */
+    public static synchronized void init(Context context) {
+        if (cache == null) {
+            cache = new Cache(new File(context.getCacheDir(), "http"), HTTP_CACHE_SIZE);
+            httpClient = null;
+            retrofit = null;
+            authRetrofit = null;
+            authToken = null;
+            services.clear();
+            authServices.clear();
+            dropStreamingClients();
+        }
+    }
+
+    /**
+     * Shared client core. Derive from it with {@link OkHttpClient#newBuilder()} rather than
+     * building a new client, so connections and dispatcher threads are reused.
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
             HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
             interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
 
-            OkHttpClient okHttpClient = new OkHttpClient.Builder()
+            httpClient = new OkHttpClient.Builder()
+                    .cache(cache)
+                    .addInterceptor(new ConditionalCacheInterceptor())
                     .addInterceptor(interceptor)
+                    .addNetworkInterceptor(new ConditionalCacheInterceptor.NetworkInterceptor())
                     .connectTimeout(REQUEST_TIMEOUT, TimeUnit.SECONDS)
                     .readTimeout(REQUEST_TIMEOUT, TimeUnit.SECONDS)
                     .writeTimeout(REQUEST_TIMEOUT, TimeUnit.SECONDS)
                     .build();
+        }
+        return httpClient;
+    }
 
+    public static synchronized Retrofit getClient() {
+        if (retrofit == null) {
             retrofit = new Retrofit.Builder()
-                    .baseUrl(Constants.BASE_URL)
-                    .client(okHttpClient)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .baseUrl(baseUrl)
+                    .client(getHttpClient())
+                    .addConverterFactory(CachedBodyConverterFactory.create())
                     .build();
         }
         return retrofit;
     }
 
-    public static Retrofit getAuthClient(String token) {
-        HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
-        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-        AuthInterceptor authInterceptor = new AuthInterceptor(token);
+    /**
+     * Get a client that authenticates with the given token. The client is cached and
+     * reused for as long as the same token is requested.
+     */
+    public static synchronized Retrofit getAuthClient(String token) {
+        if (authRetrofit == null || !Objects.equals(authToken, token)) {
+            authRetrofit = getAuthClient(() -> token);
+            authToken = token;
+            authServices.clear();
+        }
+        return authRetrofit;
+    }
 
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                .addInterceptor(interceptor)
-                .addInterceptor(authInterceptor)
-                .connectTimeout(REQUEST_TIMEOUT, TimeUnit.SECONDS)
-                .readTimeout(REQUEST_TIMEOUT, TimeUnit.SECONDS)
-                .writeTimeout(REQUEST_TIMEOUT, TimeUnit.SECONDS)
+    /**
+     * Get a client that reads its token from the given provider on every request
+     */
+    public static Retrofit getAuthClient(TokenProvider tokenProvider) {
+        OkHttpClient authHttpClient = getHttpClient().newBuilder()
+                .addInterceptor(new AuthInterceptor(tokenProvider))
                 .build();
 
-        return new Retrofit.Builder()
-                .baseUrl(Constants.BASE_URL)
-                .client(okHttpClient)
-                .addConverterFactory(GsonConverterFactory.create())
+        return getClient().newBuilder()
+                .client(authHttpClient)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Get a shared service proxy for {@code @Streaming} downloads, authenticated when a token
+     * is given. The shared client logs whole bodies, which makes the logger buffer a streamed
+     * response before the caller sees its first byte, so this client logs headers only. Like
+     * {@link #getAuthService}, the authenticated proxy is reused for as long as the same token
+     * is requested.
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T> T getStreamingService(String token, Class<T> serviceClass) {
+        if (token == null || token.isEmpty()) {
+            if (streamingRetrofit == null) {
+                streamingRetrofit = getClient().newBuilder()
+                        .client(getStreamingHttpClient())
+                        .build();
+            }
+            Retrofit client = streamingRetrofit;
+            return (T) streamingServices.computeIfAbsent(serviceClass, c -> client.create(c));
+        }
+
+        if (streamingAuthRetrofit == null || !Objects.equals(streamingAuthToken, token)) {
+            OkHttpClient authHttpClient = getStreamingHttpClient().newBuilder()
+                    .addInterceptor(new AuthInterceptor(() -> token))
+                    .build();
+            streamingAuthRetrofit = getClient().newBuilder()
+                    .client(authHttpClient)
+                    .build();
+            streamingAuthToken = token;
+            streamingAuthServices.clear();
+        }
+        Retrofit client = streamingAuthRetrofit;
+        return (T) streamingAuthServices.computeIfAbsent(serviceClass, c -> client.create(c));
+    }
+
+    /**
+     * The shared client with its body logger swapped for a header logger
+     */
+    private static OkHttpClient getStreamingHttpClient() {
+        if (streamingHttpClient == null) {
+            OkHttpClient.Builder builder = getHttpClient().newBuilder();
+            builder.interceptors().removeIf(interceptor -> interceptor instanceof HttpLoggingInterceptor);
+
+            HttpLoggingInterceptor headerLogger = new HttpLoggingInterceptor();
+            headerLogger.setLevel(HttpLoggingInterceptor.Level.HEADERS);
+            streamingHttpClient = builder.addInterceptor(headerLogger).build();
+        }
+        return streamingHttpClient;
+    }
+
+    private static void dropStreamingClients() {
+        streamingHttpClient = null;
+        streamingRetrofit = null;
+        streamingAuthRetrofit = null;
+        streamingAuthToken = null;
+        streamingServices.clear();
+        streamingAuthServices.clear();
+    }
+
+    /**
+     * Get a shared service proxy on the anonymous client
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getService(Class<T> serviceClass) {
+        return (T) services.computeIfAbsent(serviceClass, c -> getClient().create(c));
+    }
+
+    /**
+     * Get a shared service proxy on the client for the given token
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T> T getAuthService(String token, Class<T> serviceClass) {
+        Retrofit client = getAuthClient(token);
+        return (T) authServices.computeIfAbsent(serviceClass, c -> client.create(c));
+    }
+
+    /**
+     * Point the shared stack at another server and drop every cached client
+     */
+    @VisibleForTesting
+    public static synchronized void setBaseUrl(String url) {
+        baseUrl = url;
+        httpClient = null;
+        retrofit = null;
+        authRetrofit = null;
+        authToken = null;
+        services.clear();
+        authServices.clear();
+        dropStreamingClients();
+    }
+}
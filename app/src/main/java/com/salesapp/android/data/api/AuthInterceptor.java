@@ -7,16 +7,25 @@ import okhttp3.Request;
 import okhttp3.Response;
 
 public class AuthInterceptor implements Interceptor {
-    private String token;
+    private final TokenProvider tokenProvider;
 
     public AuthInterceptor(String token) {
-        this.token = token;
+        this(() -> token);
+    }
+
+    public AuthInterceptor(TokenProvider tokenProvider) {
+        this.tokenProvider = tokenProvider;
     }
 
     @Override
     public Response intercept(Chain chain) throws IOException {
         Request original = chain.request();
 
+        String token = tokenProvider.getToken();
+        if (token == null || token.isEmpty()) {
+            return chain.proceed(original);
+        }
+
         Request.Builder builder = original.newBuilder()
                 .header("Authorization", "Bearer " + token)
                 .method(original.method(), original.body());
@@ -24,4 +33,4 @@ public class AuthInterceptor implements Interceptor {
         Request request = builder.build();
         return chain.proceed(request);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.salesapp.android.data.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Wraps the Gson converter and remembers the last decoded value per cache key, as a JSON tree.
+ * When {@link ConditionalCacheInterceptor} marks a body as not modified, the body is never
+ * parsed and the value is rebuilt from the tree instead. Each caller gets its own objects, so
+ * the models can be mutated without changing what later callers receive.
+ */
+public class CachedBodyConverterFactory extends Converter.Factory {
+    private static final int MAX_ENTRIES = 16;
+
+    private final Gson gson;
+    private final Converter.Factory delegate;
+    // Never handed out; every hit builds new objects from the tree
+    private final Map<String, JsonElement> decoded = Collections.synchronizedMap(
+            new LinkedHashMap<String, JsonElement>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JsonElement> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    private CachedBodyConverterFactory(Gson gson) {
+        this.gson = gson;
+        this.delegate = GsonConverterFactory.create(gson);
+    }
+
+    public static CachedBodyConverterFactory create() {
+        return create(new Gson());
+    }
+
+    public static CachedBodyConverterFactory create(Gson gson) {
+        return new CachedBodyConverterFactory(gson);
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        Converter<ResponseBody, ?> converter = delegate.responseBodyConverter(type, annotations, retrofit);
+        if (converter == null) {
+            return null;
+        }
+        return value -> convert(converter, type, value);
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+        return delegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+
+    private Object convert(Converter<ResponseBody, ?> converter, Type type, ResponseBody value)
+            throws IOException {
+        MediaType contentType = value.contentType();
+        String cacheKey = contentType != null
+                ? contentType.parameter(ConditionalCacheInterceptor.PARAM_CACHE_KEY) : null;
+        if (cacheKey == null) {
+            return converter.convert(value);
+        }
+
+        boolean notModified = "true".equals(
+                contentType.parameter(ConditionalCacheInterceptor.PARAM_NOT_MODIFIED));
+        if (notModified) {
+            JsonElement cached = decoded.get(cacheKey);
+            if (cached != null) {
+                value.close();
+                HttpCacheStats.getInstance().recordDecodeSkipped();
+                return gson.fromJson(cached, type);
+            }
+        }
+
+        Object result = converter.convert(value);
+        if (result != null) {
+            decoded.put(cacheKey, gson.toJsonTree(result, type));
+        }
+        return result;
+    }
+}
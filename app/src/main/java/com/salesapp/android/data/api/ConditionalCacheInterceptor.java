@@ -0,0 +1,145 @@
+package com.salesapp.android.data.api;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Cache layer for read-mostly endpoints. OkHttp's disk cache stores each body together
+ * with its validators (ETag / Last-Modified) and sends If-None-Match / If-Modified-Since
+ * when the entry needs revalidation. This interceptor records what happened and tags the
+ * body so {@link CachedBodyConverterFactory} can skip decoding a body that has not changed.
+ */
+public class ConditionalCacheInterceptor implements Interceptor {
+    // Content-Type parameters read by CachedBodyConverterFactory
+    static final String PARAM_CACHE_KEY = "x-cache-key";
+    static final String PARAM_NOT_MODIFIED = "x-not-modified";
+
+    private static final MediaType DEFAULT_CONTENT_TYPE = MediaType.parse("application/json; charset=UTF-8");
+
+    private static final Set<String> CACHEABLE_PATHS = new HashSet<>(Arrays.asList(
+            "/api/products",
+            "/api/categories",
+            "/api/store-locations"
+    ));
+
+    // Per-user responses. The disk cache is keyed by URL only, so they must never be written to it.
+    // Callers revalidate them with validators they keep per user, e.g. CartRepository.fetchCart.
+    private static final Set<String> PRIVATE_PATHS = new HashSet<>(Arrays.asList(
+            "/api/cart"
+    ));
+
+    // Body size of the last full download per URL, for chunked responses without Content-Length
+    private final Map<String, Long> lastBodySize = new ConcurrentHashMap<>();
+
+    static boolean isCacheable(Request request) {
+        return "GET".equals(request.method()) && CACHEABLE_PATHS.contains(request.url().encodedPath());
+    }
+
+    static boolean isPrivate(Request request) {
+        return PRIVATE_PATHS.contains(request.url().encodedPath());
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (isPrivate(request)) {
+            // no-store keeps the response out of the cache and ignores any entry already there
+            return chain.proceed(request.newBuilder()
+                    .cacheControl(new CacheControl.Builder().noStore().build())
+                    .build());
+        }
+        Response response = chain.proceed(request);
+
+        if (!isCacheable(request) || !response.isSuccessful() || response.body() == null) {
+            return response;
+        }
+
+        String url = request.url().toString();
+        Response networkResponse = response.networkResponse();
+        Response cacheResponse = response.cacheResponse();
+        boolean notModified;
+
+        if (networkResponse == null && cacheResponse != null) {
+            HttpCacheStats.getInstance().recordHit(bodySize(response, url));
+            notModified = true;
+        } else if (networkResponse != null && cacheResponse != null
+                && networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            HttpCacheStats.getInstance().recordRevalidation(bodySize(response, url));
+            notModified = true;
+        } else {
+            long size = response.body().contentLength();
+            if (size >= 0) {
+                lastBodySize.put(url, size);
+            }
+            HttpCacheStats.getInstance().recordMiss(size);
+            notModified = false;
+        }
+
+        String validator = response.header("ETag");
+        if (validator == null) {
+            validator = response.header("Last-Modified");
+        }
+        if (validator == null) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .body(tagBody(response.body(), cacheKey(url, validator), notModified))
+                .build();
+    }
+
+    private long bodySize(Response response, String url) {
+        long size = response.body().contentLength();
+        if (size >= 0) {
+            return size;
+        }
+        Long last = lastBodySize.get(url);
+        return last != null ? last : 0;
+    }
+
+    private static String cacheKey(String url, String validator) {
+        return ByteString.encodeUtf8(url + '\n' + validator).sha1().hex();
+    }
+
+    private static ResponseBody tagBody(ResponseBody body, String cacheKey, boolean notModified) {
+        MediaType contentType = body.contentType() != null ? body.contentType() : DEFAULT_CONTENT_TYPE;
+        MediaType tagged = MediaType.parse(contentType + "; " + PARAM_CACHE_KEY + "=" + cacheKey
+                + "; " + PARAM_NOT_MODIFIED + "=" + notModified);
+        return ResponseBody.create(body.source(), tagged != null ? tagged : contentType, body.contentLength());
+    }
+
+    /**
+     * Network interceptor that lets OkHttp store cacheable responses the server sent without
+     * caching headers. "no-cache" means the entry is kept but revalidated on every use.
+     */
+    public static class NetworkInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+
+            if (!isCacheable(request)
+                    || response.header("Cache-Control") != null
+                    || response.header("Expires") != null) {
+                return response;
+            }
+
+            return response.newBuilder()
+                    .header("Cache-Control", "no-cache")
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.salesapp.android.data.api;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session counters for the HTTP cache layer
+ */
+public class HttpCacheStats {
+    private static final HttpCacheStats instance = new HttpCacheStats();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+    private final AtomicLong decodesSkipped = new AtomicLong();
+
+    public static HttpCacheStats getInstance() {
+        return instance;
+    }
+
+    /**
+     * Response served from the disk cache without touching the network
+     */
+    void recordHit(long bodyBytes) {
+        hits.incrementAndGet();
+        addBytes(bytesSaved, bodyBytes);
+    }
+
+    /**
+     * Full response downloaded from the server
+     */
+    void recordMiss(long bodyBytes) {
+        misses.incrementAndGet();
+        addBytes(bytesDownloaded, bodyBytes);
+    }
+
+    /**
+     * Conditional request answered with 304 Not Modified
+     */
+    void recordRevalidation(long bodyBytes) {
+        revalidations.incrementAndGet();
+        addBytes(bytesSaved, bodyBytes);
+    }
+
+    /**
+     * Unchanged body returned without running the JSON converter
+     */
+    void recordDecodeSkipped() {
+        decodesSkipped.incrementAndGet();
+    }
+
+    private static void addBytes(AtomicLong counter, long bytes) {
+        if (bytes > 0) {
+            counter.addAndGet(bytes);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    public long getDecodesSkipped() {
+        return decodesSkipped.get();
+    }
+
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        revalidations.set(0);
+        bytesSaved.set(0);
+        bytesDownloaded.set(0);
+        decodesSkipped.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "hits=%d, misses=%d, revalidations=%d, bytesSaved=%d, bytesDownloaded=%d, decodesSkipped=%d",
+                getHits(), getMisses(), getRevalidations(), getBytesSaved(), getBytesDownloaded(),
+                getDecodesSkipped());
+    }
+}
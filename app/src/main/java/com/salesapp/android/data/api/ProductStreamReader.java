@@ -0,0 +1,67 @@
+package com.salesapp.android.data.api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.salesapp.android.data.model.Product;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a JSON array of products one element at a time and hands them out in chunks,
+ * so the caller can show the first products before the response has finished downloading.
+ * Chunks start small for a fast first paint and double in size up to a maximum, which keeps
+ * the number of UI updates logarithmic in the catalog size.
+ */
+public class ProductStreamReader {
+    public interface ChunkListener {
+        void onChunk(List<Product> chunk);
+    }
+
+    private final TypeAdapter<Product> productAdapter;
+    private final int firstChunkSize;
+    private final int maxChunkSize;
+
+    public ProductStreamReader(Gson gson, int firstChunkSize, int maxChunkSize) {
+        this.productAdapter = gson.getAdapter(Product.class);
+        this.firstChunkSize = firstChunkSize;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    /**
+     * Read the whole array, calling the listener for every chunk
+     * @return Number of products decoded
+     */
+    public int read(Reader reader, ChunkListener listener) throws IOException {
+        int total = 0;
+        int chunkSize = firstChunkSize;
+        List<Product> chunk = new ArrayList<>(chunkSize);
+
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                Product product = productAdapter.read(jsonReader);
+                if (product == null) {
+                    continue;
+                }
+                chunk.add(product);
+                total++;
+
+                if (chunk.size() >= chunkSize) {
+                    listener.onChunk(chunk);
+                    chunkSize = Math.min(chunkSize * 2, maxChunkSize);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            jsonReader.endArray();
+        }
+
+        if (!chunk.isEmpty()) {
+            listener.onChunk(chunk);
+        }
+        return total;
+    }
+}
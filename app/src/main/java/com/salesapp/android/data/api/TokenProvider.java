@@ -0,0 +1,12 @@
+package com.salesapp.android.data.api;
+
+/**
+ * Supplies the bearer token attached to authenticated requests.
+ * Read on every request, so implementations may return a token that changes over time.
+ */
+public interface TokenProvider {
+    /**
+     * @return Current token, or null if the user is not authenticated
+     */
+    String getToken();
+}
@@ -8,6 +8,7 @@ import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
@@ -19,6 +20,13 @@ public interface CartService {
     @GET("api/cart")
     Call<CartResponse> getCart();
 
+    /**
+     * Get the cart unless it still matches the given ETag, in which case the server answers
+     * 304 Not Modified. A null ETag gets the cart unconditionally.
+     */
+    @GET("api/cart")
+    Call<CartResponse> getCartIfChanged(@Header("If-None-Match") String eTag);
+
     /**
      * Add an item to the cart
      */
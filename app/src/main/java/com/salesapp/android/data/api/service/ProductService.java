@@ -6,6 +6,7 @@ import com.salesapp.android.data.model.request.ProductRequest;
 
 import java.util.List;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
@@ -14,6 +15,7 @@ import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Retrofit service interface for Product-related API endpoints
@@ -25,6 +27,19 @@ public interface ProductService {
     @GET("api/products")
     Call<List<Product>> getAllProducts();
 
+    /**
+     * Get all products as an undecoded stream, for incremental parsing
+     */
+    @Streaming
+    @GET("api/products")
+    Call<ResponseBody> getAllProductsStream();
+
+    /**
+     * Get one page of products (zero-based page index)
+     */
+    @GET("api/products")
+    Call<List<Product>> getProductsPage(@Query("page") int page, @Query("size") int size);
+
     /**
      * Get product by ID
      */
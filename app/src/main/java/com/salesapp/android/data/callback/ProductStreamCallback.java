@@ -0,0 +1,28 @@
+package com.salesapp.android.data.callback;
+
+import com.salesapp.android.data.model.Product;
+
+import java.util.List;
+
+/**
+ * Callback for a product list that is delivered in chunks while it downloads
+ */
+public interface ProductStreamCallback {
+    /**
+     * Called for each decoded chunk, in response order
+     * @param chunk Products decoded since the previous chunk
+     */
+    void onChunk(List<Product> chunk);
+
+    /**
+     * Called after the last chunk
+     * @param total Number of products received
+     */
+    void onComplete(int total);
+
+    /**
+     * Called when the download or decode fails. Chunks already delivered remain valid.
+     * @param message Error message
+     */
+    void onError(String message);
+}
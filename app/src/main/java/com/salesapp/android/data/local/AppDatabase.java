@@ -0,0 +1,46 @@
+package com.salesapp.android.data.local;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+import com.salesapp.android.data.local.dao.CategoryDao;
+import com.salesapp.android.data.local.dao.ProductDao;
+import com.salesapp.android.data.local.entity.CategoryEntity;
+import com.salesapp.android.data.local.entity.ProductEntity;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local store for the product catalog, used to show products before the network answers
+ */
+@Database(entities = {ProductEntity.class, CategoryEntity.class}, version = 1, exportSchema = false)
+public abstract class AppDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "sales_app.db";
+
+    private static volatile AppDatabase instance;
+
+    // Room does not allow queries on the main thread
+    public static final ExecutorService databaseExecutor = Executors.newSingleThreadExecutor();
+
+    public abstract ProductDao productDao();
+
+    public abstract CategoryDao categoryDao();
+
+    public static AppDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AppDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    AppDatabase.class, DATABASE_NAME)
+                            .fallbackToDestructiveMigration()
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,31 @@
+package com.salesapp.android.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.salesapp.android.data.local.entity.CategoryEntity;
+
+import java.util.List;
+
+@Dao
+public interface CategoryDao {
+    /**
+     * Get every persisted category
+     */
+    @Query("SELECT * FROM categories ORDER BY categoryId")
+    List<CategoryEntity> getAll();
+
+    /**
+     * Insert or replace categories
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertAll(List<CategoryEntity> categories);
+
+    /**
+     * Delete categories by ID
+     */
+    @Query("DELETE FROM categories WHERE categoryId IN (:categoryIds)")
+    void deleteByIds(List<Long> categoryIds);
+}
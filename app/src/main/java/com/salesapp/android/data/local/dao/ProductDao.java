@@ -0,0 +1,49 @@
+package com.salesapp.android.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.salesapp.android.data.local.entity.ProductEntity;
+
+import java.util.List;
+
+@Dao
+public interface ProductDao {
+    /**
+     * Get every persisted product
+     */
+    @Query("SELECT * FROM products ORDER BY productId")
+    List<ProductEntity> getAll();
+
+    /**
+     * Get persisted products by ID
+     */
+    @Query("SELECT * FROM products WHERE productId IN (:productIds)")
+    List<ProductEntity> getByIds(List<Long> productIds);
+
+    /**
+     * Insert or replace products
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertAll(List<ProductEntity> products);
+
+    /**
+     * Insert or replace a single product
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(ProductEntity product);
+
+    /**
+     * Delete products by ID
+     */
+    @Query("DELETE FROM products WHERE productId IN (:productIds)")
+    void deleteByIds(List<Long> productIds);
+
+    /**
+     * Delete a single product
+     */
+    @Query("DELETE FROM products WHERE productId = :productId")
+    void deleteById(long productId);
+}
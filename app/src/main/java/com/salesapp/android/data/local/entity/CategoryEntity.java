@@ -0,0 +1,65 @@
+package com.salesapp.android.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.salesapp.android.data.model.Category;
+
+import java.util.Objects;
+
+/**
+ * Persisted copy of a {@link Category}
+ */
+@Entity(tableName = "categories")
+public class CategoryEntity {
+    @PrimaryKey
+    @NonNull
+    private Long categoryId;
+    private String categoryName;
+
+    public CategoryEntity(@NonNull Long categoryId, String categoryName) {
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+    }
+
+    public static CategoryEntity fromCategory(Category category) {
+        return new CategoryEntity(category.getCategoryId(), category.getCategoryName());
+    }
+
+    public Category toCategory() {
+        return new Category(categoryId, categoryName);
+    }
+
+    // Getters and Setters
+    @NonNull
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(@NonNull Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CategoryEntity that = (CategoryEntity) o;
+        return categoryId.equals(that.categoryId) &&
+                Objects.equals(categoryName, that.categoryName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categoryId, categoryName);
+    }
+}
@@ -0,0 +1,158 @@
+package com.salesapp.android.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.salesapp.android.data.model.Category;
+import com.salesapp.android.data.model.Product;
+
+import java.util.Objects;
+
+/**
+ * Persisted copy of a {@link Product}. The category is flattened into the row so the
+ * catalog can be restored without a join.
+ */
+@Entity(tableName = "products")
+public class ProductEntity {
+    @PrimaryKey
+    @NonNull
+    private Long productId;
+    private String productName;
+    private String briefDescription;
+    private String fullDescription;
+    private String technicalSpecifications;
+    private double price;
+    private String imageURL;
+    private Long categoryId;
+    private String categoryName;
+
+    public ProductEntity(@NonNull Long productId, String productName, String briefDescription,
+                         String fullDescription, String technicalSpecifications,
+                         double price, String imageURL, Long categoryId, String categoryName) {
+        this.productId = productId;
+        this.productName = productName;
+        this.briefDescription = briefDescription;
+        this.fullDescription = fullDescription;
+        this.technicalSpecifications = technicalSpecifications;
+        this.price = price;
+        this.imageURL = imageURL;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+    }
+
+    public static ProductEntity fromProduct(Product product) {
+        Category category = product.getCategory();
+        return new ProductEntity(
+                product.getProductId(),
+                product.getProductName(),
+                product.getBriefDescription(),
+                product.getFullDescription(),
+                product.getTechnicalSpecifications(),
+                product.getPrice(),
+                product.getImageURL(),
+                category != null ? category.getCategoryId() : null,
+                category != null ? category.getCategoryName() : null);
+    }
+
+    public Product toProduct() {
+        Category category = categoryId != null ? new Category(categoryId, categoryName) : null;
+        return new Product(productId, productName, briefDescription, fullDescription,
+                technicalSpecifications, price, imageURL, category);
+    }
+
+    // Getters and Setters
+    @NonNull
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(@NonNull Long productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getBriefDescription() {
+        return briefDescription;
+    }
+
+    public void setBriefDescription(String briefDescription) {
+        this.briefDescription = briefDescription;
+    }
+
+    public String getFullDescription() {
+        return fullDescription;
+    }
+
+    public void setFullDescription(String fullDescription) {
+        this.fullDescription = fullDescription;
+    }
+
+    public String getTechnicalSpecifications() {
+        return technicalSpecifications;
+    }
+
+    public void setTechnicalSpecifications(String technicalSpecifications) {
+        this.technicalSpecifications = technicalSpecifications;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public String getImageURL() {
+        return imageURL;
+    }
+
+    public void setImageURL(String imageURL) {
+        this.imageURL = imageURL;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProductEntity that = (ProductEntity) o;
+        return Double.compare(that.price, price) == 0 &&
+                productId.equals(that.productId) &&
+                Objects.equals(productName, that.productName) &&
+                Objects.equals(briefDescription, that.briefDescription) &&
+                Objects.equals(fullDescription, that.fullDescription) &&
+                Objects.equals(technicalSpecifications, that.technicalSpecifications) &&
+                Objects.equals(imageURL, that.imageURL) &&
+                Objects.equals(categoryId, that.categoryId) &&
+                Objects.equals(categoryName, that.categoryName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId, productName, price, imageURL, categoryId);
+    }
+}
@@ -2,6 +2,7 @@ package com.salesapp.android.data.model.response;
 
 import com.google.gson.annotations.SerializedName;
 import java.math.BigDecimal;
+import java.util.Objects;
 
 public class CartItemResponse {
     @SerializedName("cartItemId")
@@ -80,4 +81,33 @@ public class CartItemResponse {
     public void setSubtotal(BigDecimal subtotal) {
         this.subtotal = subtotal;
     }
-}
\ No newline at end of file
+
+    // Helper method to copy the item with another quantity, recomputing the subtotal from the price
+    public CartItemResponse copyWithQuantity(int newQuantity) {
+        CartItemResponse copy = new CartItemResponse();
+        copy.cartItemId = cartItemId;
+        copy.productId = productId;
+        copy.productName = productName;
+        copy.productImage = productImage;
+        copy.price = price;
+        copy.quantity = newQuantity;
+        copy.subtotal = price != null ? price.multiply(BigDecimal.valueOf(newQuantity)) : subtotal;
+        return copy;
+    }
+
+    // Helper method to tell whether a cart row would show the same thing for both items.
+    // Amounts are compared by value, so 10.0 and 10.00 count as equal.
+    public boolean hasSameContent(CartItemResponse other) {
+        return Objects.equals(cartItemId, other.cartItemId)
+                && Objects.equals(productId, other.productId)
+                && Objects.equals(productName, other.productName)
+                && Objects.equals(productImage, other.productImage)
+                && Objects.equals(quantity, other.quantity)
+                && sameAmount(price, other.price)
+                && sameAmount(subtotal, other.subtotal);
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+}
@@ -2,6 +2,7 @@ package com.salesapp.android.data.model.response;
 
 import com.google.gson.annotations.SerializedName;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 public class CartResponse {
@@ -83,4 +84,36 @@ public class CartResponse {
         }
         return count;
     }
-}
\ No newline at end of file
+
+    // Helper method to copy the cart with one item set to a new quantity. A quantity of zero
+    // or less removes the item. The total and the item count are recomputed from the items.
+    public CartResponse copyWithQuantity(Long cartItemId, int newQuantity) {
+        CartResponse copy = new CartResponse();
+        copy.cartId = cartId;
+        copy.userId = userId;
+        copy.status = status;
+        copy.items = new ArrayList<>();
+
+        BigDecimal total = BigDecimal.ZERO;
+        if (items != null) {
+            for (CartItemResponse item : items) {
+                CartItemResponse copiedItem = item;
+                if (cartItemId != null && cartItemId.equals(item.getCartItemId())) {
+                    if (newQuantity <= 0) {
+                        continue;
+                    }
+                    copiedItem = item.copyWithQuantity(newQuantity);
+                }
+                copy.items.add(copiedItem);
+                if (copiedItem.getQuantity() != null) {
+                    copy.itemCount += copiedItem.getQuantity();
+                }
+                if (copiedItem.getSubtotal() != null) {
+                    total = total.add(copiedItem.getSubtotal());
+                }
+            }
+        }
+        copy.totalPrice = total;
+        return copy;
+    }
+}
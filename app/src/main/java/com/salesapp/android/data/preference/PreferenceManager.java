@@ -87,4 +87,13 @@ public class PreferenceManager {
         setRole(role);
         setLoggedIn(true);
     }
-}
\ No newline at end of file
+
+    public void setImageCachePolicy(String policy) {
+        editor.putString(Constants.KEY_IMAGE_CACHE_POLICY, policy);
+        editor.apply();
+    }
+
+    public String getImageCachePolicy() {
+        return sharedPreferences.getString(Constants.KEY_IMAGE_CACHE_POLICY, null);
+    }
+}
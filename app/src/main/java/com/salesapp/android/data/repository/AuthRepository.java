@@ -15,7 +15,7 @@ public class AuthRepository {
     private AuthService authService;
 
     public AuthRepository() {
-        authService = ApiClient.getClient().create(AuthService.class);
+        authService = ApiClient.getService(AuthService.class);
     }
 
     public interface AuthCallback<T> {
@@ -86,7 +86,7 @@ public class AuthRepository {
         LogoutRequest logoutRequest = new LogoutRequest(token);
 
         // Use the authenticated client to ensure token is included in the headers
-        AuthService authServiceWithToken = ApiClient.getAuthClient(token).create(AuthService.class);
+        AuthService authServiceWithToken = ApiClient.getAuthService(token, AuthService.class);
         Call<AuthResponse> call = authServiceWithToken.logout(logoutRequest);
 
         call.enqueue(new Callback<AuthResponse>() {
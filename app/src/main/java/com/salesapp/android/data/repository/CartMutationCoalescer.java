@@ -0,0 +1,174 @@
+package com.salesapp.android.data.repository;
+
+import com.salesapp.android.data.model.response.CartResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collapses bursts of quantity changes for a cart item into one update request carrying the
+ * final quantity. A change is sent once no further change for the same item arrives within the
+ * debounce delay, and at most one request per item is in flight; changes made meanwhile are
+ * sent when it returns. Every change bumps the item's version, so a response is only reported
+ * if no newer change was made after its request was sent.
+ */
+public class CartMutationCoalescer {
+    /**
+     * Sends a quantity update, e.g. {@link CartRepository#updateCartItem}
+     */
+    public interface Sender {
+        void updateCartItem(Long cartItemId, int quantity, CartRepository.CartCallback<CartResponse> callback);
+    }
+
+    public interface Listener {
+        /**
+         * The server applied the latest quantity for the item
+         */
+        void onSettled(Long cartItemId, CartResponse cart);
+
+        /**
+         * The request for the latest quantity failed
+         */
+        void onFailed(Long cartItemId, String message);
+    }
+
+    private static class ItemState {
+        int targetQuantity;
+        int version;
+        int sentVersion;
+        boolean inFlight;
+        ScheduledFuture<?> scheduledSend;
+    }
+
+    private final Sender sender;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler;
+    private final long debounceMillis;
+
+    // Guarded by this
+    private final Map<Long, ItemState> items = new HashMap<>();
+
+    public CartMutationCoalescer(Sender sender, Listener listener,
+                                 ScheduledExecutorService scheduler, long debounceMillis) {
+        this.sender = sender;
+        this.listener = listener;
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Request a new quantity for an item. Replaces any quantity not yet sent.
+     */
+    public synchronized void setQuantity(Long cartItemId, int quantity) {
+        ItemState state = items.get(cartItemId);
+        if (state == null) {
+            state = new ItemState();
+            items.put(cartItemId, state);
+        }
+        state.targetQuantity = quantity;
+        state.version++;
+
+        if (state.scheduledSend != null) {
+            state.scheduledSend.cancel(false);
+        }
+        state.scheduledSend = scheduler.schedule(() -> send(cartItemId),
+                debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drop any quantity not yet sent for an item, e.g. when it is removed from the cart.
+     * A request already in flight still completes but is not reported.
+     */
+    public synchronized void cancel(Long cartItemId) {
+        ItemState state = items.remove(cartItemId);
+        if (state != null && state.scheduledSend != null) {
+            state.scheduledSend.cancel(false);
+        }
+    }
+
+    /**
+     * Send every pending quantity now instead of waiting for the debounce delay
+     */
+    public synchronized void flush() {
+        for (Map.Entry<Long, ItemState> entry : items.entrySet()) {
+            ItemState state = entry.getValue();
+            if (state.scheduledSend != null && state.scheduledSend.cancel(false)) {
+                state.scheduledSend = null;
+                Long cartItemId = entry.getKey();
+                scheduler.execute(() -> send(cartItemId));
+            }
+        }
+    }
+
+    /**
+     * True while a change for the item is waiting or in flight
+     */
+    public synchronized boolean isPending(Long cartItemId) {
+        return items.containsKey(cartItemId);
+    }
+
+    private void send(Long cartItemId) {
+        final int quantity;
+        final int version;
+        synchronized (this) {
+            ItemState state = items.get(cartItemId);
+            if (state == null) {
+                return;
+            }
+            state.scheduledSend = null;
+            if (state.inFlight) {
+                // Sent when the request in flight returns
+                return;
+            }
+            state.inFlight = true;
+            state.sentVersion = state.version;
+            quantity = state.targetQuantity;
+            version = state.version;
+        }
+
+        sender.updateCartItem(cartItemId, quantity, new CartRepository.CartCallback<CartResponse>() {
+            @Override
+            public void onSuccess(CartResponse result) {
+                if (complete(cartItemId, version)) {
+                    listener.onSettled(cartItemId, result);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                if (complete(cartItemId, version)) {
+                    listener.onFailed(cartItemId, message);
+                }
+            }
+        });
+    }
+
+    /**
+     * Finish the request for the given version
+     * @return True if it carried the latest quantity and should be reported
+     */
+    private boolean complete(Long cartItemId, int version) {
+        synchronized (this) {
+            ItemState state = items.get(cartItemId);
+            if (state == null || state.sentVersion != version) {
+                // The item was cancelled while the request was in flight
+                return false;
+            }
+            state.inFlight = false;
+
+            if (state.version == version) {
+                items.remove(cartItemId);
+                return true;
+            }
+
+            // Changed while in flight. Send the newer quantity now unless it is still being debounced.
+            if (state.scheduledSend == null) {
+                scheduler.execute(() -> send(cartItemId));
+            }
+            return false;
+        }
+    }
+}
@@ -1,12 +1,24 @@
 package com.salesapp.android.data.repository;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import com.salesapp.android.data.api.ApiClient;
 import com.salesapp.android.data.api.service.CartService;
 import com.salesapp.android.data.model.request.UpdateCartItemRequest;
 import com.salesapp.android.data.model.response.CartResponse;
 import com.salesapp.android.data.model.request.CartItemRequest;
+import com.salesapp.android.utils.Constants;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -15,10 +27,27 @@ import retrofit2.Response;
 public class CartRepository {
     private static final String TAG = "CartRepository";
     private CartService cartService;
+    private final String token;
+
+    // Shared by every repository instance so that the badge, the notification and the cart
+    // screen asking for the cart at the same time cost a single request
+    private static final Object cartLock = new Object();
+    private static String cartToken;
+    private static Call<CartResponse> inFlightCart;
+    private static final List<CartCallback<CartResponse>> cartWaiters = new ArrayList<>();
+    private static CartResponse lastCart;
+    private static long lastCartTime;
+    // Every cart request takes the next version when it is sent. A response older than the last
+    // published one is dropped, so responses arriving out of order can't bring back an old cart.
+    private static int cartVersion;
+    private static int publishedVersion;
+    private static volatile MutationListener mutationListener;
+    private static volatile Platform platform = new AndroidPlatform();
 
     public CartRepository(String token) {
         // Use authenticated client since cart operations require authentication
-        cartService = ApiClient.getAuthClient(token).create(CartService.class);
+        cartService = ApiClient.getAuthService(token, CartService.class);
+        this.token = token;
     }
 
     public interface CartCallback<T> {
@@ -26,54 +55,318 @@ public class CartRepository {
         void onError(String message);
     }
 
+    public interface MutationListener {
+        void onCartMutated(CartResponse cart);
+    }
+
+    /**
+     * The Android side of the shared cart state: the main thread, the clock, the log and the
+     * {@link CartStore}. Tests replace it to run the repository on the JVM.
+     */
+    interface Platform {
+        void post(Runnable task);
+
+        long elapsedRealtime();
+
+        void log(String message);
+
+        void logError(String message, Throwable t);
+
+        default void logError(String message) {
+            logError(message, null);
+        }
+
+        /**
+         * Publish a cart to the app
+         */
+        void publish(CartResponse cart);
+
+        /**
+         * Forget the published cart
+         */
+        void clear();
+    }
+
+    private static final class AndroidPlatform implements Platform {
+        // Created on first use, so the repository can be loaded off the device
+        private Handler mainHandler;
+
+        @Override
+        public synchronized void post(Runnable task) {
+            if (mainHandler == null) {
+                mainHandler = new Handler(Looper.getMainLooper());
+            }
+            mainHandler.post(task);
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void log(String message) {
+            Log.d(TAG, message);
+        }
+
+        @Override
+        public void logError(String message, Throwable t) {
+            Log.e(TAG, message, t);
+        }
+
+        @Override
+        public void publish(CartResponse cart) {
+            CartStore.getInstance().update(cart);
+        }
+
+        @Override
+        public void clear() {
+            CartStore.getInstance().clear();
+        }
+    }
+
     /**
-     * Get the current user's cart
+     * Get the current user's cart. Concurrent calls share one request, and calls made shortly
+     * after a successful fetch reuse its result.
      */
     public void getCart(CartCallback<CartResponse> callback) {
-        Log.d(TAG, "Getting cart");
-        Call<CartResponse> call = cartService.getCart();
+        final int requestVersion;
+        final Call<CartResponse> call;
+        synchronized (cartLock) {
+            if (!sameToken(token, cartToken)) {
+                resetCartState();
+                cartToken = token;
+            }
+
+            if (lastCart != null
+                    && platform.elapsedRealtime() - lastCartTime < Constants.CART_FRESHNESS_WINDOW_MS) {
+                platform.log("Reusing recently fetched cart");
+                CartResponse cart = lastCart;
+                platform.post(() -> callback.onSuccess(cart));
+                return;
+            }
+
+            cartWaiters.add(callback);
+            if (inFlightCart != null) {
+                platform.log("Joining cart request in flight");
+                return;
+            }
+
+            platform.log("Getting cart");
+            requestVersion = ++cartVersion;
+            call = cartService.getCart();
+            inFlightCart = call;
+        }
+
         call.enqueue(new Callback<CartResponse>() {
             @Override
             public void onResponse(Call<CartResponse> call, Response<CartResponse> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "Cart fetch successful");
-                    callback.onSuccess(response.body());
+                    platform.log("Cart fetch successful");
+                    CartResponse cart = response.body();
+                    for (CartCallback<CartResponse> waiter : completeCartRequest(call, cart, requestVersion)) {
+                        waiter.onSuccess(cart);
+                    }
                 } else {
                     String errorMessage = "Failed to get cart: " +
                             (response.errorBody() != null ?
                                     response.errorBody().toString() : "Unknown error");
-                    Log.e(TAG, errorMessage);
-                    callback.onError(errorMessage);
+                    platform.logError(errorMessage);
+                    for (CartCallback<CartResponse> waiter : completeCartRequest(call, null, requestVersion)) {
+                        waiter.onError(errorMessage);
+                    }
                 }
             }
 
             @Override
             public void onFailure(Call<CartResponse> call, Throwable t) {
                 String errorMessage = "Network error: " + t.getMessage();
-                Log.e(TAG, errorMessage, t);
-                callback.onError(errorMessage);
+                platform.logError(errorMessage, t);
+                for (CartCallback<CartResponse> waiter : completeCartRequest(call, null, requestVersion)) {
+                    waiter.onError(errorMessage);
+                }
             }
         });
     }
 
+    /**
+     * Result of {@link #fetchCart}: either the cart unchanged since the given ETag, or the
+     * current cart with its ETag
+     */
+    public static final class FetchResult {
+        public final boolean notModified;
+        public final CartResponse cart;
+        public final String eTag;
+
+        private FetchResult(boolean notModified, CartResponse cart, String eTag) {
+            this.notModified = notModified;
+            this.cart = cart;
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * Fetch the cart on the calling thread, for background work. A successful result is
+     * published to the {@link CartStore} like any other cart.
+     * @param eTag ETag of the last cart fetched for this user, or null. The server answers
+     *             304 without a body while the cart still matches it.
+     * @return The result, or null if the server answered with an error
+     * @throws IOException If the server could not be reached
+     */
+    public FetchResult fetchCart(@Nullable String eTag) throws IOException {
+        final int requestVersion;
+        synchronized (cartLock) {
+            if (!sameToken(token, cartToken)) {
+                resetCartState();
+                cartToken = token;
+            }
+            requestVersion = ++cartVersion;
+        }
+
+        platform.log("Fetching cart");
+        Response<CartResponse> response = cartService.getCartIfChanged(eTag).execute();
+        if (eTag != null && response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            platform.log("Cart not modified");
+            return new FetchResult(true, null, eTag);
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            platform.logError("Failed to fetch cart: " + response.code());
+            return null;
+        }
+
+        publishCart(response.body(), requestVersion);
+        return new FetchResult(false, response.body(), response.headers().get("ETag"));
+    }
+
+    /**
+     * Finish the shared cart request and take the callbacks waiting on it
+     */
+    private static List<CartCallback<CartResponse>> completeCartRequest(Call<CartResponse> call,
+                                                                        CartResponse cart, int requestVersion) {
+        List<CartCallback<CartResponse>> waiters;
+        boolean publish = false;
+        synchronized (cartLock) {
+            if (call != inFlightCart) {
+                // Dropped when the user changed, its waiters went with it
+                return new ArrayList<>();
+            }
+            inFlightCart = null;
+            if (cart != null && requestVersion > publishedVersion) {
+                publish = true;
+                publishedVersion = requestVersion;
+                lastCart = cart;
+                lastCartTime = platform.elapsedRealtime();
+            }
+            waiters = new ArrayList<>(cartWaiters);
+            cartWaiters.clear();
+        }
+
+        // Observers see the new cart before the callbacks run
+        if (publish) {
+            platform.publish(cart);
+        }
+        return waiters;
+    }
+
+    /**
+     * Record a cart returned by the server, unless a newer request already published one.
+     * The cart is cached for {@link #getCart} and published to the {@link CartStore}.
+     */
+    private static void publishCart(CartResponse cart, int requestVersion) {
+        synchronized (cartLock) {
+            if (requestVersion < publishedVersion) {
+                platform.log("Dropping cart from an older request");
+                return;
+            }
+            publishedVersion = requestVersion;
+            lastCart = cart;
+            lastCartTime = platform.elapsedRealtime();
+        }
+        platform.publish(cart);
+    }
+
+    /**
+     * Record the cart returned by a mutation and tell the mutation listener
+     */
+    private static void publishMutation(CartResponse cart, int requestVersion) {
+        publishCart(cart, requestVersion);
+        MutationListener listener = mutationListener;
+        if (listener != null) {
+            listener.onCartMutated(cart);
+        }
+    }
+
+    /**
+     * Replace the Android side of the shared cart state; null restores the default
+     */
+    @VisibleForTesting
+    static void setPlatform(Platform newPlatform) {
+        platform = newPlatform != null ? newPlatform : new AndroidPlatform();
+    }
+
+    /**
+     * Set the listener told about every cart change made from this device
+     */
+    public static void setMutationListener(MutationListener listener) {
+        mutationListener = listener;
+    }
+
+    /**
+     * Drop the shared cart state and the published cart, e.g. on logout
+     */
+    public static void resetSharedState() {
+        synchronized (cartLock) {
+            resetCartState();
+            cartToken = null;
+        }
+        platform.clear();
+    }
+
+    /**
+     * Take the version of a mutation about to be sent and forget the recently fetched cart,
+     * so the next {@link #getCart} goes to the network
+     */
+    private static int beginMutation() {
+        synchronized (cartLock) {
+            lastCart = null;
+            return ++cartVersion;
+        }
+    }
+
+    private static void resetCartState() {
+        if (inFlightCart != null) {
+            inFlightCart.cancel();
+            inFlightCart = null;
+        }
+        cartWaiters.clear();
+        lastCart = null;
+        publishedVersion = ++cartVersion;
+    }
+
+    private static boolean sameToken(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     /**
      * Add an item to the cart
      */
     public void addItemToCart(Long productId, int quantity, CartCallback<CartResponse> callback) {
-        Log.d(TAG, "Adding item to cart - productId: " + productId + ", quantity: " + quantity);
+        platform.log("Adding item to cart - productId: " + productId + ", quantity: " + quantity);
+        final int requestVersion = beginMutation();
         CartItemRequest request = new CartItemRequest(productId, quantity);
         Call<CartResponse> call = cartService.addToCart(request);
         call.enqueue(new Callback<CartResponse>() {
             @Override
             public void onResponse(Call<CartResponse> call, Response<CartResponse> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "Item added to cart successfully");
+                    platform.log("Item added to cart successfully");
+                    publishMutation(response.body(), requestVersion);
                     callback.onSuccess(response.body());
                 } else {
                     String errorMessage = "Failed to add item to cart: " +
                             (response.errorBody() != null ?
                                     response.errorBody().toString() : "Unknown error");
-                    Log.e(TAG, errorMessage);
+                    platform.logError(errorMessage);
                     callback.onError(errorMessage);
                 }
             }
@@ -81,7 +374,7 @@ public class CartRepository {
             @Override
             public void onFailure(Call<CartResponse> call, Throwable t) {
                 String errorMessage = "Network error: " + t.getMessage();
-                Log.e(TAG, errorMessage, t);
+                platform.logError(errorMessage, t);
                 callback.onError(errorMessage);
             }
         });
@@ -91,20 +384,22 @@ public class CartRepository {
      * Update cart item quantity
      */
     public void updateCartItem(Long cartItemId, int quantity, CartCallback<CartResponse> callback) {
-        Log.d(TAG, "Updating cart item - cartItemId: " + cartItemId + ", quantity: " + quantity);
+        platform.log("Updating cart item - cartItemId: " + cartItemId + ", quantity: " + quantity);
+        final int requestVersion = beginMutation();
         UpdateCartItemRequest request = new UpdateCartItemRequest(cartItemId, quantity);
         Call<CartResponse> call = cartService.updateCartItem(request);
         call.enqueue(new Callback<CartResponse>() {
             @Override
             public void onResponse(Call<CartResponse> call, Response<CartResponse> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "Cart item updated successfully");
+                    platform.log("Cart item updated successfully");
+                    publishMutation(response.body(), requestVersion);
                     callback.onSuccess(response.body());
                 } else {
                     String errorMessage = "Failed to update cart item: " +
                             (response.errorBody() != null ?
                                     response.errorBody().toString() : "Unknown error");
-                    Log.e(TAG, errorMessage);
+                    platform.logError(errorMessage);
                     callback.onError(errorMessage);
                 }
             }
@@ -112,7 +407,7 @@ public class CartRepository {
             @Override
             public void onFailure(Call<CartResponse> call, Throwable t) {
                 String errorMessage = "Network error: " + t.getMessage();
-                Log.e(TAG, errorMessage, t);
+                platform.logError(errorMessage, t);
                 callback.onError(errorMessage);
             }
         });
@@ -122,19 +417,21 @@ public class CartRepository {
      * Remove item from cart
      */
     public void removeCartItem(Long cartItemId, CartCallback<CartResponse> callback) {
-        Log.d(TAG, "Removing cart item - cartItemId: " + cartItemId);
+        platform.log("Removing cart item - cartItemId: " + cartItemId);
+        final int requestVersion = beginMutation();
         Call<CartResponse> call = cartService.removeCartItem(cartItemId);
         call.enqueue(new Callback<CartResponse>() {
             @Override
             public void onResponse(Call<CartResponse> call, Response<CartResponse> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "Cart item removed successfully");
+                    platform.log("Cart item removed successfully");
+                    publishMutation(response.body(), requestVersion);
                     callback.onSuccess(response.body());
                 } else {
                     String errorMessage = "Failed to remove cart item: " +
                             (response.errorBody() != null ?
                                     response.errorBody().toString() : "Unknown error");
-                    Log.e(TAG, errorMessage);
+                    platform.logError(errorMessage);
                     callback.onError(errorMessage);
                 }
             }
@@ -142,7 +439,7 @@ public class CartRepository {
             @Override
             public void onFailure(Call<CartResponse> call, Throwable t) {
                 String errorMessage = "Network error: " + t.getMessage();
-                Log.e(TAG, errorMessage, t);
+                platform.logError(errorMessage, t);
                 callback.onError(errorMessage);
             }
         });
@@ -152,19 +449,21 @@ public class CartRepository {
      * Clear the cart
      */
     public void clearCart(CartCallback<CartResponse> callback) {
-        Log.d(TAG, "Clearing cart");
+        platform.log("Clearing cart");
+        final int requestVersion = beginMutation();
         Call<CartResponse> call = cartService.clearCart();
         call.enqueue(new Callback<CartResponse>() {
             @Override
             public void onResponse(Call<CartResponse> call, Response<CartResponse> response) {
                 if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "Cart cleared successfully");
+                    platform.log("Cart cleared successfully");
+                    publishMutation(response.body(), requestVersion);
                     callback.onSuccess(response.body());
                 } else {
                     String errorMessage = "Failed to clear cart: " +
                             (response.errorBody() != null ?
                                     response.errorBody().toString() : "Unknown error");
-                    Log.e(TAG, errorMessage);
+                    platform.logError(errorMessage);
                     callback.onError(errorMessage);
                 }
             }
@@ -172,7 +471,7 @@ public class CartRepository {
             @Override
             public void onFailure(Call<CartResponse> call, Throwable t) {
                 String errorMessage = "Network error: " + t.getMessage();
-                Log.e(TAG, errorMessage, t);
+                platform.logError(errorMessage, t);
                 callback.onError(errorMessage);
             }
         });
@@ -0,0 +1,154 @@
+package com.salesapp.android.data.repository;
+
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.salesapp.android.data.model.response.CartResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * App-wide holder for the latest cart returned by the server. {@link CartRepository} publishes
+ * every cart it receives here, and the cart screen, the bottom navigation badge and the cart
+ * notification all observe it instead of fetching the cart themselves.
+ *
+ * Local edits can be applied before the server answers. The observed cart is the last server
+ * cart with every pending edit applied on top, so finishing an edit either keeps it (the server
+ * cart now contains it) or rolls it back (the server cart never saw it).
+ */
+public class CartStore {
+    private static volatile CartStore instance;
+
+    private final MutableLiveData<CartResponse> cart = new MutableLiveData<>();
+
+    // Guarded by this
+    private CartResponse confirmedCart;
+    private final List<LocalEdit> pendingEdits = new ArrayList<>();
+
+    /**
+     * A quantity change not yet confirmed by the server. A quantity of zero removes the item.
+     */
+    public static final class LocalEdit {
+        private final Long cartItemId;
+        private final int quantity;
+
+        private LocalEdit(Long cartItemId, int quantity) {
+            this.cartItemId = cartItemId;
+            this.quantity = quantity;
+        }
+    }
+
+    private CartStore() {
+    }
+
+    public static CartStore getInstance() {
+        if (instance == null) {
+            synchronized (CartStore.class) {
+                if (instance == null) {
+                    instance = new CartStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The latest cart including local edits, or null before the first fetch and after logout
+     */
+    public LiveData<CartResponse> getCart() {
+        return cart;
+    }
+
+    public CartResponse getCurrentCart() {
+        return cart.getValue();
+    }
+
+    /**
+     * Total quantity of all items in the latest cart
+     */
+    public int getItemCount() {
+        CartResponse current = cart.getValue();
+        return current != null ? current.getTotalItemsCount() : 0;
+    }
+
+    /**
+     * Publish a new cart from the server. Safe to call from any thread.
+     */
+    public void update(CartResponse newCart) {
+        CartResponse shown;
+        synchronized (this) {
+            confirmedCart = newCart;
+            shown = applyPendingEdits();
+        }
+        publish(shown);
+    }
+
+    /**
+     * Show a quantity change right away, before the server confirms it. Replaces any pending
+     * edit of the same item. Pass the returned edit to {@link #finishLocalEdit} once the server
+     * has answered, successfully or not.
+     */
+    public LocalEdit applyLocalEdit(Long cartItemId, int quantity) {
+        LocalEdit edit = new LocalEdit(cartItemId, quantity);
+        CartResponse shown;
+        synchronized (this) {
+            for (int i = pendingEdits.size() - 1; i >= 0; i--) {
+                if (pendingEdits.get(i).cartItemId.equals(cartItemId)) {
+                    pendingEdits.remove(i);
+                }
+            }
+            pendingEdits.add(edit);
+            shown = applyPendingEdits();
+        }
+        publish(shown);
+        return edit;
+    }
+
+    /**
+     * Stop applying a local edit. After a successful request the server cart already reflects
+     * it; after a failed one this rolls the change back.
+     */
+    public void finishLocalEdit(LocalEdit edit) {
+        CartResponse shown;
+        synchronized (this) {
+            if (!pendingEdits.remove(edit)) {
+                return;
+            }
+            shown = applyPendingEdits();
+        }
+        publish(shown);
+    }
+
+    /**
+     * Forget the cart, e.g. on logout
+     */
+    public void clear() {
+        synchronized (this) {
+            confirmedCart = null;
+            pendingEdits.clear();
+        }
+        publish(null);
+    }
+
+    private CartResponse applyPendingEdits() {
+        CartResponse shown = confirmedCart;
+        if (shown == null) {
+            return null;
+        }
+        for (LocalEdit edit : pendingEdits) {
+            shown = shown.copyWithQuantity(edit.cartItemId, edit.quantity);
+        }
+        return shown;
+    }
+
+    private void publish(CartResponse newCart) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            cart.setValue(newCart);
+        } else {
+            cart.postValue(newCart);
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class LocationRepository {
 
     public LocationRepository() {
         // Location endpoints are public, no authentication needed
-        apiService = ApiClient.getClient().create(ApiService.class);
+        apiService = ApiClient.getService(ApiService.class);
     }
 
     /**
@@ -0,0 +1,130 @@
+package com.salesapp.android.data.repository;
+
+import com.salesapp.android.data.callback.ProductCallback;
+import com.salesapp.android.data.model.Product;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import retrofit2.Call;
+
+/**
+ * Loads the product catalog one page at a time. Only one page request is in flight at once,
+ * and the source remembers which products the current pass has seen so the caller can drop
+ * products the server no longer returns once the last page arrives.
+ */
+public class ProductPagingSource {
+    private final ProductRepository repository;
+    private final int pageSize;
+
+    private final Set<Long> seenIds = new HashSet<>();
+    private int nextPage = 0;
+    private boolean endReached = false;
+    private Call<List<Product>> inFlight;
+
+    // Incremented on reset so responses from an earlier pass are ignored
+    private int generation = 0;
+
+    ProductPagingSource(ProductRepository repository, int pageSize) {
+        this.repository = repository;
+        this.pageSize = pageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public boolean isLoading() {
+        return inFlight != null;
+    }
+
+    public boolean hasMore() {
+        return !endReached;
+    }
+
+    /**
+     * True if the current pass has received the given product
+     */
+    public boolean hasSeen(Long productId) {
+        return seenIds.contains(productId);
+    }
+
+    /**
+     * True if the next call to {@link #loadNextPage} loads the first page
+     */
+    public boolean isAtStart() {
+        return nextPage == 0;
+    }
+
+    /**
+     * Load the next page. Ignored while a page is loading or after the last page.
+     */
+    public void loadNextPage(ProductCallback<List<Product>> callback) {
+        if (inFlight != null || endReached) {
+            return;
+        }
+
+        final int page = nextPage;
+        final int requestGeneration = generation;
+        inFlight = repository.getProductsPage(page, pageSize, new ProductCallback<List<Product>>() {
+            @Override
+            public void onSuccess(List<Product> result) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                inFlight = null;
+                nextPage = page + 1;
+
+                boolean sawNewProduct = false;
+                for (Product product : result) {
+                    if (product.getProductId() != null && seenIds.add(product.getProductId())) {
+                        sawNewProduct = true;
+                    }
+                }
+
+                // A short page is the last one. A page with nothing new means the server
+                // ignored the paging parameters and already sent everything.
+                if (result.size() < pageSize || !sawNewProduct) {
+                    endReached = true;
+                    repository.prunePersistedProducts(new HashSet<>(seenIds));
+                }
+
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(String message) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                inFlight = null;
+                callback.onError(message);
+            }
+        });
+    }
+
+    /**
+     * Record that the whole catalog was loaded by other means, so no further pages are needed
+     */
+    public void markComplete(Collection<Long> productIds) {
+        reset();
+        seenIds.addAll(productIds);
+        endReached = true;
+    }
+
+    /**
+     * Cancel any page in flight and start over from the first page
+     */
+    public void reset() {
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+        nextPage = 0;
+        endReached = false;
+        seenIds.clear();
+    }
+}
@@ -1,35 +1,65 @@
 package com.salesapp.android.data.repository;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import com.google.gson.Gson;
 import com.salesapp.android.data.api.ApiClient;
+import com.salesapp.android.data.api.ProductStreamReader;
 import com.salesapp.android.data.api.service.ProductService;
 import com.salesapp.android.data.callback.ProductCallback;
+import com.salesapp.android.data.callback.ProductStreamCallback;
+import com.salesapp.android.data.local.AppDatabase;
+import com.salesapp.android.data.local.entity.CategoryEntity;
+import com.salesapp.android.data.local.entity.ProductEntity;
 import com.salesapp.android.data.model.Category;
 import com.salesapp.android.data.model.Product;
 import com.salesapp.android.data.model.request.ProductRequest;
+import com.salesapp.android.utils.Constants;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
 public class ProductRepository {
+    // Keeps IN (...) clauses under SQLite's bound-variable limit
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    // Streamed responses are decoded off the main thread
+    private static final ExecutorService streamExecutor = Executors.newSingleThreadExecutor();
+    private static final ProductStreamReader streamReader = new ProductStreamReader(
+            new Gson(), Constants.STREAM_FIRST_CHUNK_SIZE, Constants.STREAM_MAX_CHUNK_SIZE);
+
     private ProductService apiService;
+    // Same endpoints on a client that does not buffer bodies for logging
+    private final ProductService streamService;
     private final String token;
+    private final AppDatabase database;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-    public ProductRepository(String token) {
+    public ProductRepository(Context context, String token) {
         this.token = token;
+        this.database = AppDatabase.getInstance(context);
         // Use authenticated client if token is provided
         if (token != null && !token.isEmpty()) {
-            apiService = ApiClient.getAuthClient(token).create(ProductService.class);
+            apiService = ApiClient.getAuthService(token, ProductService.class);
         } else {
-            apiService = ApiClient.getClient().create(ProductService.class);
+            apiService = ApiClient.getService(ProductService.class);
         }
+        streamService = ApiClient.getStreamingService(token, ProductService.class);
     }
 
     /**
@@ -49,6 +79,7 @@ public class ProductRepository {
 
                 if (response.isSuccessful() && response.body() != null) {
                     Log.d("ProductRepository", "getAllProducts success, received " + response.body().size() + " products");
+                    saveProducts(response.body(), true);
                     callback.onSuccess(response.body());
                 } else {
                     String errorBody = "";
@@ -72,6 +103,116 @@ public class ProductRepository {
         });
     }
 
+    /**
+     * Download the whole catalog and deliver it in chunks while it is decoded, so products
+     * can be shown before the response has finished. Each chunk is persisted as it arrives
+     * and only the product IDs are kept, so the decoded catalog is never held in memory at
+     * once. Stored products the stream did not contain are deleted after the last chunk.
+     * Returns the call so the caller can cancel the download.
+     */
+    public Call<ResponseBody> streamAllProducts(ProductStreamCallback callback) {
+        Call<ResponseBody> call = streamService.getAllProductsStream();
+
+        streamExecutor.execute(() -> {
+            try {
+                Response<ResponseBody> response = call.execute();
+                if (!response.isSuccessful() || response.body() == null) {
+                    Log.e("ProductRepository", "streamAllProducts failed: " + response.message());
+                    mainHandler.post(() -> callback.onError("Failed to fetch products: " + response.message()));
+                    return;
+                }
+
+                Set<Long> streamedIds = new HashSet<>();
+                long heapBefore = usedHeap();
+                long[] peakHeap = {heapBefore};
+                final int total;
+                try (ResponseBody body = response.body()) {
+                    total = streamReader.read(body.charStream(), chunk -> {
+                        for (Product product : chunk) {
+                            streamedIds.add(product.getProductId());
+                        }
+                        saveProducts(chunk, false);
+                        peakHeap[0] = Math.max(peakHeap[0], usedHeap());
+                        if (!call.isCanceled()) {
+                            mainHandler.post(() -> callback.onChunk(chunk));
+                        }
+                    });
+                }
+                Log.d("ProductRepository", "streamAllProducts decoded " + total + " products, heap grew by at most " +
+                        (peakHeap[0] - heapBefore) / 1024 + " KB");
+
+                prunePersistedProducts(streamedIds);
+                mainHandler.post(() -> callback.onComplete(total));
+            } catch (IOException e) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                Log.e("ProductRepository", "streamAllProducts network error: " + e.getMessage(), e);
+                mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+            } catch (RuntimeException e) {
+                Log.e("ProductRepository", "streamAllProducts parse error: " + e.getMessage(), e);
+                mainHandler.post(() -> callback.onError("Failed to parse products: " + e.getMessage()));
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Get one page of products and persist the rows that changed.
+     * Returns the call so a paging source can cancel it.
+     */
+    public Call<List<Product>> getProductsPage(int page, int size, ProductCallback<List<Product>> callback) {
+        Call<List<Product>> call = apiService.getProductsPage(page, size);
+        call.enqueue(new Callback<List<Product>>() {
+            @Override
+            public void onResponse(Call<List<Product>> call, Response<List<Product>> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    Log.d("ProductRepository", "getProductsPage " + page + " received " + response.body().size() + " products");
+                    saveProducts(response.body(), false);
+                    callback.onSuccess(response.body());
+                } else {
+                    callback.onError("Failed to fetch products: " + response.message());
+                }
+            }
+
+            @Override
+            public void onFailure(Call<List<Product>> call, Throwable t) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                Log.e("ProductRepository", "getProductsPage network error: " + t.getMessage(), t);
+                callback.onError("Network error: " + t.getMessage());
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Create a paging source over the product catalog
+     */
+    public ProductPagingSource newPagingSource() {
+        return new ProductPagingSource(this, Constants.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Get the catalog persisted by the last successful fetch. Empty if nothing is stored yet.
+     */
+    public void getCachedProducts(ProductCallback<List<Product>> callback) {
+        AppDatabase.databaseExecutor.execute(() -> {
+            try {
+                List<Product> result = new ArrayList<>();
+                for (ProductEntity entity : database.productDao().getAll()) {
+                    result.add(entity.toProduct());
+                }
+                Log.d("ProductRepository", "getCachedProducts loaded " + result.size() + " products");
+                mainHandler.post(() -> callback.onSuccess(result));
+            } catch (Exception e) {
+                Log.e("ProductRepository", "getCachedProducts failed: " + e.getMessage(), e);
+                mainHandler.post(() -> callback.onError("Failed to read cached products: " + e.getMessage()));
+            }
+        });
+    }
+
     /**
      * Get product by ID
      */
@@ -117,9 +258,9 @@ public class ProductRepository {
     }
 
     /**
-     * Search products by name
+     * Search products by name. Returns the call so a newer search can cancel it.
      */
-    public void searchProducts(String query, ProductCallback<List<Product>> callback) {
+    public Call<List<Product>> searchProducts(String query, ProductCallback<List<Product>> callback) {
         Call<List<Product>> call = apiService.searchProducts(query);
         call.enqueue(new Callback<List<Product>>() {
             @Override
@@ -133,9 +274,13 @@ public class ProductRepository {
 
             @Override
             public void onFailure(Call<List<Product>> call, Throwable t) {
+                if (call.isCanceled()) {
+                    return;
+                }
                 callback.onError("Network error: " + t.getMessage());
             }
         });
+        return call;
     }
 
     /**
@@ -143,13 +288,14 @@ public class ProductRepository {
      */
     public void createProduct(ProductRequest productRequest, ProductCallback<Product> callback) {
         // Ensure we use the authenticated client for admin operations
-        ProductService adminApiService = ApiClient.getAuthClient(token).create(ProductService.class);
+        ProductService adminApiService = ApiClient.getAuthService(token, ProductService.class);
 
         Call<Product> call = adminApiService.createProduct(productRequest);
         call.enqueue(new Callback<Product>() {
             @Override
             public void onResponse(Call<Product> call, Response<Product> response) {
                 if (response.isSuccessful() && response.body() != null) {
+                    saveProduct(response.body());
                     callback.onSuccess(response.body());
                 } else {
                     String errorBody = "";
@@ -176,13 +322,14 @@ public class ProductRepository {
      */
     public void updateProduct(long productId, ProductRequest productRequest, ProductCallback<Product> callback) {
         // Ensure we use the authenticated client for admin operations
-        ProductService adminApiService = ApiClient.getAuthClient(token).create(ProductService.class);
+        ProductService adminApiService = ApiClient.getAuthService(token, ProductService.class);
 
         Call<Product> call = adminApiService.updateProduct(productId, productRequest);
         call.enqueue(new Callback<Product>() {
             @Override
             public void onResponse(Call<Product> call, Response<Product> response) {
                 if (response.isSuccessful() && response.body() != null) {
+                    saveProduct(response.body());
                     callback.onSuccess(response.body());
                 } else {
                     String errorBody = "";
@@ -209,13 +356,14 @@ public class ProductRepository {
      */
     public void deleteProduct(long productId, ProductCallback<String> callback) {
         // Ensure we use the authenticated client for admin operations
-        ProductService adminApiService = ApiClient.getAuthClient(token).create(ProductService.class);
+        ProductService adminApiService = ApiClient.getAuthService(token, ProductService.class);
 
         Call<Void> call = adminApiService.deleteProduct(productId);
         call.enqueue(new Callback<Void>() {
             @Override
             public void onResponse(Call<Void> call, Response<Void> response) {
                 if (response.isSuccessful()) {
+                    AppDatabase.databaseExecutor.execute(() -> database.productDao().deleteById(productId));
                     callback.onSuccess("Product deleted successfully");
                 } else {
                     String errorBody = "";
@@ -246,6 +394,7 @@ public class ProductRepository {
             @Override
             public void onResponse(Call<List<Category>> call, Response<List<Category>> response) {
                 if (response.isSuccessful() && response.body() != null) {
+                    saveCategories(response.body());
                     callback.onSuccess(response.body());
                 } else {
                     callback.onError("Failed to fetch categories: " + response.message());
@@ -260,77 +409,161 @@ public class ProductRepository {
     }
 
     /**
-     * Filter products based on criteria (local filtering - not API)
+     * Get the categories persisted by the last successful fetch
      */
-    public List<Product> filterProducts(List<Product> products, String query, Long categoryId,
-                                        double minPrice, double maxPrice) {
-        Log.d("ProductRepository", "Filtering products - input size: " +
-                (products != null ? products.size() : 0));
-        Log.d("ProductRepository", "Filter params - query: '" + query +
-                "', categoryId: " + categoryId +
-                ", price range: " + minPrice + "-" + maxPrice);
-
-        if (products == null) {
-            return new ArrayList<>();
-        }
+    public void getCachedCategories(ProductCallback<List<Category>> callback) {
+        AppDatabase.databaseExecutor.execute(() -> {
+            try {
+                List<Category> result = new ArrayList<>();
+                for (CategoryEntity entity : database.categoryDao().getAll()) {
+                    result.add(entity.toCategory());
+                }
+                mainHandler.post(() -> callback.onSuccess(result));
+            } catch (Exception e) {
+                Log.e("ProductRepository", "getCachedCategories failed: " + e.getMessage(), e);
+                mainHandler.post(() -> callback.onError("Failed to read cached categories: " + e.getMessage()));
+            }
+        });
+    }
 
-        // Debug the products we're trying to filter
+    /**
+     * Persist freshly fetched products, writing only the rows that changed.
+     * With pruneMissing the list is the whole catalog, and stored rows it does not
+     * contain are deleted.
+     */
+    private void saveProducts(List<Product> products, boolean pruneMissing) {
+        // Snapshot on the calling thread; the caller may mutate the list afterwards
+        List<ProductEntity> fresh = new ArrayList<>(products.size());
         for (Product product : products) {
-            Log.d("ProductRepository", "Product before filtering: " +
-                    product.getProductId() + " - " +
-                    product.getProductName() + ", price: " +
-                    product.getPrice() + ", category: " +
-                    (product.getCategory() != null ? product.getCategory().getCategoryId() : "null"));
+            if (product.getProductId() != null) {
+                fresh.add(ProductEntity.fromProduct(product));
+            }
         }
 
-        List<Product> filtered = products.stream()
-                .filter(product -> {
-                    // Filter by search query
-                    boolean matchesQuery = query == null || query.isEmpty() ||
-                            (product.getProductName() != null &&
-                                    product.getProductName().toLowerCase().contains(query.toLowerCase())) ||
-                            (product.getBriefDescription() != null &&
-                                    product.getBriefDescription().toLowerCase().contains(query.toLowerCase()));
-
-                    // Filter by category
-                    boolean matchesCategory = categoryId == null ||
-                            (product.getCategory() != null &&
-                                    product.getCategory().getCategoryId().equals(categoryId));
-
-                    // Filter by price
-                    boolean matchesPrice = product.getPrice() >= minPrice &&
-                            product.getPrice() <= maxPrice;
-
-                    // Log why a product might be filtered out
-                    if (!matchesQuery || !matchesCategory || !matchesPrice) {
-                        Log.d("ProductRepository", "Product filtered out: " + product.getProductName() +
-                                " - matchesQuery: " + matchesQuery +
-                                ", matchesCategory: " + matchesCategory +
-                                ", matchesPrice: " + matchesPrice);
+        AppDatabase.databaseExecutor.execute(() -> {
+            try {
+                // A full catalog is compared against every stored row, a page only against its own rows
+                List<ProductEntity> storedRows;
+                if (pruneMissing) {
+                    storedRows = database.productDao().getAll();
+                } else {
+                    List<Long> ids = new ArrayList<>(fresh.size());
+                    for (ProductEntity entity : fresh) {
+                        ids.add(entity.getProductId());
                     }
+                    storedRows = ids.isEmpty() ? new ArrayList<>() : database.productDao().getByIds(ids);
+                }
 
-                    return matchesQuery && matchesCategory && matchesPrice;
-                })
-                .collect(Collectors.toList());
+                Map<Long, ProductEntity> stored = new HashMap<>();
+                for (ProductEntity entity : storedRows) {
+                    stored.put(entity.getProductId(), entity);
+                }
 
-        Log.d("ProductRepository", "Filtering result: " + filtered.size() + " products");
-        return filtered;
+                List<ProductEntity> changed = new ArrayList<>();
+                for (ProductEntity entity : fresh) {
+                    ProductEntity previous = stored.remove(entity.getProductId());
+                    if (!entity.equals(previous)) {
+                        changed.add(entity);
+                    }
+                }
+                List<Long> removed = pruneMissing ? new ArrayList<>(stored.keySet()) : new ArrayList<>();
+
+                database.runInTransaction(() -> {
+                    if (!changed.isEmpty()) {
+                        database.productDao().upsertAll(changed);
+                    }
+                    deleteProducts(removed);
+                });
+                Log.d("ProductRepository", "saveProducts wrote " + changed.size() +
+                        " changed, deleted " + removed.size() + " products");
+            } catch (Exception e) {
+                Log.e("ProductRepository", "saveProducts failed: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
-     * Sort products by price (local sorting - not API)
+     * Delete every persisted product whose ID is not in the given set. Used once a paged
+     * pass has seen the whole catalog.
      */
-    public List<Product> sortProductsByPrice(List<Product> products, boolean ascending) {
-        if (products == null) {
-            return new ArrayList<>();
+    void prunePersistedProducts(Set<Long> keepIds) {
+        AppDatabase.databaseExecutor.execute(() -> {
+            try {
+                List<Long> removed = new ArrayList<>();
+                for (ProductEntity entity : database.productDao().getAll()) {
+                    if (!keepIds.contains(entity.getProductId())) {
+                        removed.add(entity.getProductId());
+                    }
+                }
+                database.runInTransaction(() -> deleteProducts(removed));
+                Log.d("ProductRepository", "prunePersistedProducts deleted " + removed.size() + " products");
+            } catch (Exception e) {
+                Log.e("ProductRepository", "prunePersistedProducts failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void deleteProducts(List<Long> productIds) {
+        for (int i = 0; i < productIds.size(); i += DELETE_BATCH_SIZE) {
+            database.productDao().deleteByIds(
+                    productIds.subList(i, Math.min(i + DELETE_BATCH_SIZE, productIds.size())));
         }
+    }
 
-        List<Product> sortedList = new ArrayList<>(products);
-        if (ascending) {
-            sortedList.sort((p1, p2) -> Double.compare(p1.getPrice(), p2.getPrice()));
-        } else {
-            sortedList.sort((p1, p2) -> Double.compare(p2.getPrice(), p1.getPrice()));
+    /**
+     * Persist a single created or updated product
+     */
+    private void saveProduct(Product product) {
+        if (product.getProductId() == null) {
+            return;
+        }
+        ProductEntity entity = ProductEntity.fromProduct(product);
+        AppDatabase.databaseExecutor.execute(() -> database.productDao().upsert(entity));
+    }
+
+    /**
+     * Persist freshly fetched categories, writing only the rows that changed
+     */
+    private void saveCategories(List<Category> categories) {
+        List<CategoryEntity> fresh = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            if (category.getCategoryId() != null) {
+                fresh.add(CategoryEntity.fromCategory(category));
+            }
         }
-        return sortedList;
+
+        AppDatabase.databaseExecutor.execute(() -> {
+            try {
+                Map<Long, CategoryEntity> stored = new HashMap<>();
+                for (CategoryEntity entity : database.categoryDao().getAll()) {
+                    stored.put(entity.getCategoryId(), entity);
+                }
+
+                List<CategoryEntity> changed = new ArrayList<>();
+                for (CategoryEntity entity : fresh) {
+                    CategoryEntity previous = stored.remove(entity.getCategoryId());
+                    if (!entity.equals(previous)) {
+                        changed.add(entity);
+                    }
+                }
+                List<Long> removed = new ArrayList<>(stored.keySet());
+
+                database.runInTransaction(() -> {
+                    if (!changed.isEmpty()) {
+                        database.categoryDao().upsertAll(changed);
+                    }
+                    if (!removed.isEmpty()) {
+                        database.categoryDao().deleteByIds(removed);
+                    }
+                });
+            } catch (Exception e) {
+                Log.e("ProductRepository", "saveCategories failed: " + e.getMessage(), e);
+            }
+        });
     }
-}
\ No newline at end of file
+}
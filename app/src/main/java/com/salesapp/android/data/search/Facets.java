@@ -0,0 +1,125 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.model.Product;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How many products of a search result fall into each category and each price band, so the
+ * filter dialog can show what a choice leaves before it is applied. Immutable.
+ *
+ * The price range is split into bands of equal width; a price outside it counts in the
+ * nearest band.
+ */
+public final class Facets {
+    private final int total;
+    private final Map<Long, Integer> categoryCounts;
+    private final double lowestPrice;
+    private final double highestPrice;
+    private final int[] priceBuckets;
+
+    private Facets(int total, Map<Long, Integer> categoryCounts, double lowestPrice,
+                   double highestPrice, int[] priceBuckets) {
+        this.total = total;
+        this.categoryCounts = Collections.unmodifiableMap(categoryCounts);
+        this.lowestPrice = lowestPrice;
+        this.highestPrice = highestPrice;
+        this.priceBuckets = priceBuckets;
+    }
+
+    /**
+     * Number of products in the search result
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Number of products in a category, 0 if none
+     */
+    public int getCategoryCount(Long categoryId) {
+        Integer count = categoryCounts.get(categoryId);
+        return count != null ? count : 0;
+    }
+
+    public double getLowestPrice() {
+        return lowestPrice;
+    }
+
+    public double getHighestPrice() {
+        return highestPrice;
+    }
+
+    /**
+     * Product count of each price band, from the lowest band up
+     */
+    public int[] getPriceBuckets() {
+        return priceBuckets.clone();
+    }
+
+    /**
+     * Lowest price of a band; the band ends where the next one starts
+     */
+    public double getBucketStart(int bucket) {
+        return lowestPrice + (highestPrice - lowestPrice) * bucket / priceBuckets.length;
+    }
+
+    /**
+     * Product count of the fullest band, for scaling a histogram
+     */
+    public int getLargestBucket() {
+        int largest = 0;
+        for (int count : priceBuckets) {
+            largest = Math.max(largest, count);
+        }
+        return largest;
+    }
+
+    /**
+     * True if the facets were counted over this price range
+     */
+    boolean hasPriceRange(double lowest, double highest) {
+        return Double.compare(lowest, lowestPrice) == 0 && Double.compare(highest, highestPrice) == 0;
+    }
+
+    /**
+     * Counts both facets in one pass over a search result
+     */
+    static final class Counter {
+        private final double lowestPrice;
+        private final double highestPrice;
+        private final double bucketWidth;
+        private final int[] priceBuckets;
+        private final Map<Long, Integer> categoryCounts = new HashMap<>();
+        private int total = 0;
+
+        Counter(double lowestPrice, double highestPrice, int bucketCount) {
+            this.lowestPrice = lowestPrice;
+            this.highestPrice = highestPrice;
+            this.bucketWidth = (highestPrice - lowestPrice) / bucketCount;
+            this.priceBuckets = new int[bucketCount];
+        }
+
+        void add(Product product) {
+            total++;
+
+            Long categoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+            if (categoryId != null) {
+                Integer count = categoryCounts.get(categoryId);
+                categoryCounts.put(categoryId, count != null ? count + 1 : 1);
+            }
+
+            // A single price makes every band empty but the first
+            int bucket = bucketWidth > 0 ? (int) ((product.getPrice() - lowestPrice) / bucketWidth) : 0;
+            priceBuckets[Math.max(0, Math.min(bucket, priceBuckets.length - 1))]++;
+        }
+
+        Facets build() {
+            return new Facets(total, categoryCounts, lowestPrice, highestPrice,
+                    Arrays.copyOf(priceBuckets, priceBuckets.length));
+        }
+    }
+}
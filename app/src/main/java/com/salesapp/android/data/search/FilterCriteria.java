@@ -0,0 +1,82 @@
+package com.salesapp.android.data.search;
+
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of the product list filters, handed to the background filter thread
+ */
+public final class FilterCriteria {
+
+    /**
+     * Order of the filtered list. Relevance needs a query; without one, products are listed
+     * from the lowest price.
+     */
+    public enum SortOrder {
+        RELEVANCE,
+        PRICE_ASCENDING,
+        PRICE_DESCENDING
+    }
+
+    private final String query;
+    private final Long categoryId;
+    private final double minPrice;
+    private final double maxPrice;
+    private final SortOrder sortOrder;
+
+    public FilterCriteria(String query, Long categoryId, double minPrice, double maxPrice,
+                          SortOrder sortOrder) {
+        this.query = query != null ? query : "";
+        this.categoryId = categoryId;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.sortOrder = sortOrder != null ? sortOrder : SortOrder.RELEVANCE;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FilterCriteria)) {
+            return false;
+        }
+        FilterCriteria that = (FilterCriteria) o;
+        return Double.compare(minPrice, that.minPrice) == 0
+                && Double.compare(maxPrice, that.maxPrice) == 0
+                && sortOrder == that.sortOrder
+                && query.equals(that.query)
+                && Objects.equals(categoryId, that.categoryId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, categoryId, minPrice, maxPrice, sortOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "query: '" + query + "', categoryId: " + categoryId
+                + ", price range: " + minPrice + "-" + maxPrice
+                + ", order: " + sortOrder;
+    }
+}
@@ -0,0 +1,136 @@
+package com.salesapp.android.data.search;
+
+/**
+ * Map from long keys to int values in one primitive array, with open addressing and linear
+ * probing. Each key is stored next to its value, so a lookup neither boxes the key nor follows
+ * a pointer, and usually touches a single cache line. That matters when every product of a
+ * large result is looked up. Not thread-safe.
+ */
+final class LongIntMap {
+    private static final int MIN_CAPACITY = 16;
+    // Marks a free entry; the key itself is kept aside
+    private static final long FREE = Long.MIN_VALUE;
+
+    // Key at 2i, value at 2i + 1
+    private long[] entries;
+    private int mask;
+    private int size = 0;
+    private boolean hasFreeKey = false;
+    private int freeKeyValue;
+
+    LongIntMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The value for a key, or {@code missing} if the key is absent
+     */
+    int get(long key, int missing) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : missing;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long stored = entries[2 * i];
+            if (stored == key) {
+                return (int) entries[2 * i + 1];
+            }
+            if (stored == FREE) {
+                return missing;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int i = index(key);
+        while (entries[2 * i] != FREE) {
+            if (entries[2 * i] == key) {
+                entries[2 * i + 1] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        entries[2 * i] = key;
+        entries[2 * i + 1] = value;
+        // Kept at most half full, so probe runs stay short
+        if (++size * 2 > mask + 1) {
+            rehash((mask + 1) * 2);
+        }
+    }
+
+    void remove(long key) {
+        if (key == FREE) {
+            if (hasFreeKey) {
+                hasFreeKey = false;
+                size--;
+            }
+            return;
+        }
+        int i = index(key);
+        while (entries[2 * i] != key) {
+            if (entries[2 * i] == FREE) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        entries[2 * i] = FREE;
+        size--;
+
+        // Shift later entries of the probe run back, so no lookup stops at the hole
+        int hole = i;
+        for (int j = (i + 1) & mask; entries[2 * j] != FREE; j = (j + 1) & mask) {
+            int home = index(entries[2 * j]);
+            // Moves the entry unless its home lies cyclically after the hole, up to j
+            if (hole <= j ? (home <= hole || home > j) : (home <= hole && home > j)) {
+                entries[2 * hole] = entries[2 * j];
+                entries[2 * hole + 1] = entries[2 * j + 1];
+                entries[2 * j] = FREE;
+                hole = j;
+            }
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < entries.length; i += 2) {
+            entries[i] = FREE;
+        }
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = entries;
+        allocate(capacity);
+        size = hasFreeKey ? 1 : 0;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != FREE) {
+                put(old[i], (int) old[i + 1]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        entries = new long[2 * capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < entries.length; i += 2) {
+            entries[i] = FREE;
+        }
+    }
+
+    private int index(long key) {
+        // Fibonacci hashing spreads sequential IDs over the whole table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
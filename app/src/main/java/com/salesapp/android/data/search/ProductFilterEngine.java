@@ -0,0 +1,302 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Filters and sorts the local catalog on a background thread. The engine owns the
+ * {@link ProductSearchIndex}; catalog changes and filter requests are queued on one executor
+ * so the index is only touched from that thread and a filter always sees every change
+ * made before it was requested.
+ *
+ * Every filter request takes a new generation. A request that is superseded before it runs,
+ * or while it runs, is dropped instead of published, so the listener only ever receives
+ * results in request order and the last result matches the last request.
+ *
+ * While typing, a query usually extends the previous one. The engine keeps the matches of
+ * its last run, and when no criterion has been widened and the catalog has not changed since,
+ * it narrows those matches instead of searching the whole catalog again.
+ *
+ * Matches are read from the index's price order, so results come out sorted without a sort
+ * pass; descending order is the same slice reversed.
+ *
+ * From {@link #RANKED_QUERY_MIN_LENGTH} characters on, products matching the query word by
+ * word in any text field, typos included, are added to the substring matches, and the
+ * relevance order ranks the result with BM25. Shorter queries match most of the catalog
+ * anyway and are listed in price order.
+ *
+ * Facets of a query's matches are counted on the same thread and kept for the last few
+ * queries until the catalog changes.
+ */
+public class ProductFilterEngine {
+    static final int RANKED_QUERY_MIN_LENGTH = 3;
+    static final int PRICE_BUCKETS = 12;
+    private static final int FACET_CACHE_SIZE = 8;
+
+    /**
+     * Receives filter results and catalog price bounds on the engine's thread
+     */
+    public interface Listener {
+        void onFiltered(FilterCriteria criteria, List<Product> products);
+
+        /**
+         * The lowest or highest price in the catalog changed. Both are NaN for an empty catalog.
+         */
+        default void onPriceRangeChanged(double lowestPrice, double highestPrice) {
+        }
+
+        /**
+         * Facets requested with {@link #countFacets} are ready
+         */
+        default void onFacetsCounted(String query, Facets facets) {
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Listener listener;
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private double lowestPrice = Double.NaN;
+    private double highestPrice = Double.NaN;
+
+    // Matches of the last run in ascending price order, dropped whenever the catalog changes
+    private FilterCriteria lastCriteria;
+    private String lastFoldedQuery;
+    private List<Product> lastMatches;
+    private int refinedRuns = 0;
+
+    // Facets by folded query, least recently used first
+    private final Map<String, Facets> facetCache = new LinkedHashMap<String, Facets>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Facets> eldest) {
+            return size() > FACET_CACHE_SIZE;
+        }
+    };
+    private int facetCounts = 0;
+
+    public ProductFilterEngine(ExecutorService executor, Listener listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Replace the indexed catalog. The list is copied, so the caller may keep changing it.
+     */
+    public void setAll(Collection<Product> catalog) {
+        List<Product> snapshot = new ArrayList<>(catalog);
+        executor.execute(() -> {
+            index.setAll(snapshot);
+            onCatalogChanged();
+        });
+    }
+
+    /**
+     * Add a product, or replace the indexed product with the same ID
+     */
+    public void put(Product product) {
+        executor.execute(() -> {
+            // A new or changed product may match criteria the last result excluded it from
+            index.put(product);
+            onCatalogChanged();
+        });
+    }
+
+    /**
+     * Remove a product by ID
+     */
+    public void remove(Long productId) {
+        executor.execute(() -> {
+            index.remove(productId);
+            onCatalogChanged();
+        });
+    }
+
+    /**
+     * Filter the catalog in the background, superseding any earlier request
+     */
+    public void filter(FilterCriteria criteria) {
+        final int requestGeneration = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (requestGeneration != generation.get()) {
+                return;
+            }
+            List<Product> result = match(criteria);
+            if (criteria.getSortOrder() == FilterCriteria.SortOrder.PRICE_DESCENDING) {
+                Collections.reverse(result);
+            }
+            if (requestGeneration != generation.get()) {
+                return;
+            }
+            listener.onFiltered(criteria, result);
+        });
+    }
+
+    /**
+     * Count the categories and price bands of every product matching a query, whatever the
+     * category and price filters. The price bands split the given range, which is usually
+     * the range of the price slider.
+     */
+    public void countFacets(String query, double lowestPrice, double highestPrice) {
+        String trimmed = query != null ? query.trim() : "";
+        executor.execute(() -> {
+            String foldedQuery = TextNormalizer.fold(trimmed);
+            Facets facets = facetCache.get(foldedQuery);
+            if (facets == null || !facets.hasPriceRange(lowestPrice, highestPrice)) {
+                facets = countMatches(trimmed, foldedQuery, lowestPrice, highestPrice);
+                facetCache.put(foldedQuery, facets);
+            }
+            listener.onFacetsCounted(query, facets);
+        });
+    }
+
+    /**
+     * Stop the background thread. Pending requests are dropped.
+     */
+    public void shutdown() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Number of runs answered by narrowing the previous matches
+     */
+    int getRefinedRuns() {
+        return refinedRuns;
+    }
+
+    /**
+     * Number of facet requests not answered from the cache
+     */
+    int getFacetCounts() {
+        return facetCounts;
+    }
+
+    private List<Product> match(FilterCriteria criteria) {
+        String foldedQuery = TextNormalizer.fold(criteria.getQuery().trim());
+        List<Product> textMatches;
+        if (canRefine(criteria, foldedQuery)) {
+            textMatches = index.refine(lastMatches, criteria.getQuery());
+            refinedRuns++;
+        } else {
+            // Null for a blank query: the price slice alone is the result
+            textMatches = foldedQuery.isEmpty() ? null : index.search(criteria.getQuery());
+        }
+        List<Product> filtered = inPriceOrder(textMatches, criteria);
+
+        lastCriteria = criteria;
+        lastFoldedQuery = foldedQuery;
+        lastMatches = filtered;
+        if (foldedQuery.length() < RANKED_QUERY_MIN_LENGTH) {
+            // Returned as a copy, since the matches are kept for narrowing the next run
+            return new ArrayList<>(filtered);
+        }
+
+        // Kept disjoint from the substring matches, so the two price-ordered lists just interleave
+        List<Product> wordMatches = inCategory(index.searchWordsInPriceOrder(criteria.getQuery(), filtered,
+                criteria.getMinPrice(), criteria.getMaxPrice()), criteria);
+        if (criteria.getSortOrder() == FilterCriteria.SortOrder.RELEVANCE) {
+            return index.rankByRelevance(filtered, wordMatches, criteria.getQuery());
+        }
+        return mergeByPrice(filtered, wordMatches);
+    }
+
+    /**
+     * Facets of the same matches {@link #match} finds, before the category and price filters
+     */
+    private Facets countMatches(String query, String foldedQuery, double lowestPrice, double highestPrice) {
+        facetCounts++;
+        Facets.Counter counter = new Facets.Counter(lowestPrice, highestPrice, PRICE_BUCKETS);
+        List<Product> textMatches = index.search(query);
+        for (Product product : textMatches) {
+            counter.add(product);
+        }
+        if (foldedQuery.length() >= RANKED_QUERY_MIN_LENGTH) {
+            for (Product product : index.searchWords(query, textMatches)) {
+                counter.add(product);
+            }
+        }
+        return counter.build();
+    }
+
+    /**
+     * Candidates within the price range and category, in ascending price order
+     */
+    private List<Product> inPriceOrder(List<Product> candidates, FilterCriteria criteria) {
+        return inCategory(index.inPriceOrder(candidates, criteria.getMinPrice(), criteria.getMaxPrice()), criteria);
+    }
+
+    /**
+     * Products in the criteria's category, keeping their order
+     */
+    private static List<Product> inCategory(List<Product> products, FilterCriteria criteria) {
+        Long categoryId = criteria.getCategoryId();
+        if (categoryId == null) {
+            return products;
+        }
+        List<Product> filtered = new ArrayList<>();
+        for (Product product : products) {
+            if (product.getCategory() != null && categoryId.equals(product.getCategory().getCategoryId())) {
+                filtered.add(product);
+            }
+        }
+        return filtered;
+    }
+
+    private static List<Product> mergeByPrice(List<Product> first, List<Product> second) {
+        List<Product> merged = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() || j < second.size()) {
+            if (j == second.size()
+                    || (i < first.size() && first.get(i).getPrice() <= second.get(j).getPrice())) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * True if every product matching the criteria is among the last matches: the query still
+     * contains the last one, and neither the category nor the price range has been widened
+     */
+    private boolean canRefine(FilterCriteria criteria, String foldedQuery) {
+        if (lastMatches == null) {
+            return false;
+        }
+        Long lastCategoryId = lastCriteria.getCategoryId();
+        return foldedQuery.contains(lastFoldedQuery)
+                && (lastCategoryId == null || lastCategoryId.equals(criteria.getCategoryId()))
+                && criteria.getMinPrice() >= lastCriteria.getMinPrice()
+                && criteria.getMaxPrice() <= lastCriteria.getMaxPrice();
+    }
+
+    private void onCatalogChanged() {
+        forgetLastMatches();
+        facetCache.clear();
+
+        double lowest = index.getLowestPrice();
+        double highest = index.getHighestPrice();
+        if (Double.compare(lowest, lowestPrice) != 0 || Double.compare(highest, highestPrice) != 0) {
+            lowestPrice = lowest;
+            highestPrice = highest;
+            listener.onPriceRangeChanged(lowest, highest);
+        }
+    }
+
+    private void forgetLastMatches() {
+        lastCriteria = null;
+        lastFoldedQuery = null;
+        lastMatches = null;
+    }
+}
@@ -0,0 +1,710 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search index over the local catalog. The searchable text of every product (name and brief
+ * description) is folded once when the product is added, so a query only folds itself and
+ * compares against the stored text without allocating per product.
+ *
+ * Products live in slots. Updating a product frees its old slot and appends a new one, so slot
+ * order is insertion order; freed slots are reclaimed by compacting once they outnumber the
+ * live ones. Not thread-safe.
+ *
+ * Queries of three or more characters go through an inverted index from every trigram of the
+ * folded text to the slots containing it. Slots are only ever appended, so each posting list
+ * stays sorted and a query intersects the lists of its trigrams by merging, then verifies the
+ * few remaining candidates with {@code contains}. Freed slots stay in the posting lists until
+ * the next compaction, which rebuilds them, and are skipped while verifying.
+ *
+ * Live slots are also kept ordered by price in two primitive arrays, the permutation of slots
+ * and their prices, maintained by insertion on every change. A price range is then a
+ * binary-searched slice of that order, already sorted in either direction.
+ *
+ * For ranking, a {@link TermIndex} holds the words of all four text fields of every slot.
+ * Scoring a query against it also finds products by their descriptions and specifications
+ * and through misspelled words.
+ */
+public class ProductSearchIndex {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int GRAM = 3;
+    // Below one candidate per this many products in the price slice, sorting the candidates
+    // is cheaper than walking the slice
+    private static final int SLICE_WALK_RATIO = 8;
+    // Words of a query beyond this are ignored for ranking
+    private static final int MAX_QUERY_WORDS = 16;
+    // Added to the relevance of a product whose name contains the whole query
+    private static final float NAME_MATCH_BONUS = 5f;
+
+    private Product[] products = new Product[INITIAL_CAPACITY];
+    private String[] searchText = new String[INITIAL_CAPACITY];
+    private int slotCount = 0;
+    private int liveCount = 0;
+    private final LongIntMap slotById = new LongIntMap();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    private double[] priceBySlot = new double[INITIAL_CAPACITY];
+    // Live slots ordered by price, then slot, with their prices alongside for binary search
+    private int[] slotsByPrice = new int[INITIAL_CAPACITY];
+    private double[] sortedPrices = new double[INITIAL_CAPACITY];
+    private int priceCount = 0;
+    // Scratch flags by slot for walking a price slice
+    private boolean[] marks = new boolean[INITIAL_CAPACITY];
+
+    private final TermIndex terms = new TermIndex(INITIAL_CAPACITY);
+    // Relevance by slot of the last ranked query, valid until the catalog changes
+    private String rankedQuery;
+    private int rankedWordsMask;
+    private float[] relevance = new float[INITIAL_CAPACITY];
+    private int[] wordMasks = new int[INITIAL_CAPACITY];
+    private int[] rankedSlots = new int[INITIAL_CAPACITY];
+    private int rankedCount = 0;
+
+    /**
+     * Replace the whole index with the given products
+     */
+    public void setAll(Collection<Product> catalog) {
+        int capacity = Math.max(INITIAL_CAPACITY, catalog.size());
+        products = new Product[capacity];
+        searchText = new String[capacity];
+        priceBySlot = new double[capacity];
+        slotsByPrice = new int[capacity];
+        sortedPrices = new double[capacity];
+        marks = new boolean[capacity];
+        relevance = new float[capacity];
+        wordMasks = new int[capacity];
+        rankedSlots = new int[capacity];
+        rankedCount = 0;
+        rankedQuery = null;
+        terms.clear(capacity);
+        slotCount = 0;
+        liveCount = 0;
+        priceCount = 0;
+        slotById.clear();
+        postings.clear();
+        for (Product product : catalog) {
+            putSlot(product);
+        }
+
+        // Sorted once rather than inserted one by one
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (products[slot] != null) {
+                slotsByPrice[priceCount++] = slot;
+            }
+        }
+        sortSlotsByPrice(slotsByPrice, priceCount);
+        for (int i = 0; i < priceCount; i++) {
+            sortedPrices[i] = priceBySlot[slotsByPrice[i]];
+        }
+    }
+
+    /**
+     * Add a product, or replace the indexed product with the same ID
+     */
+    public void put(Product product) {
+        int slot = putSlot(product);
+        if (slot >= 0) {
+            insertPrice(slot);
+            compactIfSparse();
+        }
+    }
+
+    /**
+     * Remove a product by ID
+     */
+    public void remove(Long productId) {
+        if (productId != null) {
+            removeSlot(slotById.get(productId, -1));
+            compactIfSparse();
+        }
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    public Product get(Long productId) {
+        int slot = productId != null ? slotById.get(productId, -1) : -1;
+        return slot >= 0 ? products[slot] : null;
+    }
+
+    /**
+     * Products whose words match every word of the query, in any of the four text fields,
+     * allowing typos (see {@link TermIndex}), in insertion order. The excluded products, e.g.
+     * the query's substring matches, are left out.
+     */
+    public List<Product> searchWords(String query, List<Product> excluded) {
+        rank(TextNormalizer.fold(query != null ? query.trim() : null));
+        List<Product> result = new ArrayList<>();
+        if (rankedWordsMask == 0) {
+            return result;
+        }
+
+        setMarks(excluded, true);
+        if (rankedCount > slotCount / SLICE_WALK_RATIO) {
+            // Most of the catalog matched: checking every slot beats sorting the matches
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (wordMasks[slot] == rankedWordsMask && !marks[slot]) {
+                    result.add(products[slot]);
+                }
+            }
+        } else {
+            int[] slots = Arrays.copyOf(rankedSlots, rankedCount);
+            Arrays.sort(slots);
+            for (int slot : slots) {
+                if (wordMasks[slot] == rankedWordsMask && !marks[slot]) {
+                    result.add(products[slot]);
+                }
+            }
+        }
+        setMarks(excluded, false);
+        return result;
+    }
+
+    /**
+     * The word matches of {@link #searchWords} priced within the range, inclusive, in ascending
+     * price order. Read straight from the price order rather than sorted afterwards.
+     */
+    public List<Product> searchWordsInPriceOrder(String query, List<Product> excluded,
+                                                 double minPrice, double maxPrice) {
+        rank(TextNormalizer.fold(query != null ? query.trim() : null));
+        int from = lowerBound(minPrice);
+        int to = upperBound(maxPrice);
+        List<Product> result = new ArrayList<>();
+        if (rankedWordsMask == 0 || from >= to) {
+            return result;
+        }
+
+        setMarks(excluded, true);
+        if ((long) rankedCount * SLICE_WALK_RATIO < to - from) {
+            int[] slots = new int[rankedCount];
+            int count = 0;
+            for (int i = 0; i < rankedCount; i++) {
+                int slot = rankedSlots[i];
+                if (wordMasks[slot] == rankedWordsMask && !marks[slot]
+                        && priceBySlot[slot] >= minPrice && priceBySlot[slot] <= maxPrice) {
+                    slots[count++] = slot;
+                }
+            }
+            sortSlotsByPrice(slots, count);
+            for (int i = 0; i < count; i++) {
+                result.add(products[slots[i]]);
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                int slot = slotsByPrice[i];
+                if (wordMasks[slot] == rankedWordsMask && !marks[slot]) {
+                    result.add(products[slot]);
+                }
+            }
+        }
+        setMarks(excluded, false);
+        return result;
+    }
+
+    /**
+     * Merge the substring matches of a query with its word matches (see {@link #searchWords})
+     * and order them by relevance, best first. Both lists are in ascending price order, which
+     * is kept among products of equal relevance.
+     */
+    public List<Product> rankByRelevance(List<Product> substringMatches, List<Product> wordMatches, String query) {
+        String folded = TextNormalizer.fold(query != null ? query.trim() : null);
+        rank(folded);
+
+        // Relevance as a primitive key by merged price position, lower is better
+        int total = substringMatches.size() + wordMatches.size();
+        Product[] byPrice = new Product[total];
+        int[] keys = new int[total];
+        int i = 0;
+        int j = 0;
+        for (int position = 0; position < total; position++) {
+            boolean fromSubstring = j == wordMatches.size() || (i < substringMatches.size()
+                    && substringMatches.get(i).getPrice() <= wordMatches.get(j).getPrice());
+            Product product = fromSubstring ? substringMatches.get(i++) : wordMatches.get(j++);
+            int slot = slotOf(product);
+            float score = 0f;
+            if (slot >= 0) {
+                score = relevance[slot];
+                // Only a substring match can contain the whole query in its name
+                if (fromSubstring && nameContains(slot, folded)) {
+                    score += NAME_MATCH_BONUS;
+                }
+            }
+            byPrice[position] = product;
+            // Scores are never negative, so their bits order like the scores themselves
+            keys[position] = Integer.MAX_VALUE - Float.floatToIntBits(score);
+        }
+
+        List<Product> ranked = new ArrayList<>(total);
+        for (int position : orderByKey(keys)) {
+            ranked.add(byPrice[position]);
+        }
+        return ranked;
+    }
+
+    /**
+     * Positions ordered by their non-negative keys, ascending, keeping positions with equal keys
+     * in order. A radix sort in byte-wide passes, linear in the number of keys; passes where
+     * every key has the same byte are skipped.
+     */
+    static int[] orderByKey(int[] keys) {
+        int count = keys.length;
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        if (count < 2) {
+            return order;
+        }
+
+        int[] buffer = new int[count];
+        int[] starts = new int[257];
+        for (int shift = 0; shift < 32; shift += 8) {
+            Arrays.fill(starts, 0);
+            for (int key : keys) {
+                starts[((key >>> shift) & 0xFF) + 1]++;
+            }
+            if (starts[((keys[0] >>> shift) & 0xFF) + 1] == count) {
+                continue;
+            }
+            for (int b = 0; b < 256; b++) {
+                starts[b + 1] += starts[b];
+            }
+            for (int i = 0; i < count; i++) {
+                int position = order[i];
+                buffer[starts[(keys[position] >>> shift) & 0xFF]++] = position;
+            }
+            int[] sorted = buffer;
+            buffer = order;
+            order = sorted;
+        }
+        return order;
+    }
+
+    /**
+     * Lowest indexed price, or NaN if the index is empty
+     */
+    public double getLowestPrice() {
+        return priceCount > 0 ? sortedPrices[0] : Double.NaN;
+    }
+
+    /**
+     * Highest indexed price, or NaN if the index is empty
+     */
+    public double getHighestPrice() {
+        return priceCount > 0 ? sortedPrices[priceCount - 1] : Double.NaN;
+    }
+
+    /**
+     * Products priced within the range, inclusive, in ascending price order. If candidates are
+     * given, e.g. a search result, only those are returned; they must still be indexed
+     * unchanged. Null candidates stand for the whole catalog.
+     */
+    public List<Product> inPriceOrder(List<Product> candidates, double minPrice, double maxPrice) {
+        int from = lowerBound(minPrice);
+        int to = upperBound(maxPrice);
+        List<Product> result = new ArrayList<>();
+        if (from >= to) {
+            return result;
+        }
+
+        if (candidates == null) {
+            for (int i = from; i < to; i++) {
+                result.add(products[slotsByPrice[i]]);
+            }
+            return result;
+        }
+
+        if ((long) candidates.size() * SLICE_WALK_RATIO < to - from) {
+            int[] slots = new int[candidates.size()];
+            int count = 0;
+            for (Product product : candidates) {
+                int slot = slotOf(product);
+                if (slot >= 0 && priceBySlot[slot] >= minPrice && priceBySlot[slot] <= maxPrice) {
+                    slots[count++] = slot;
+                }
+            }
+            sortSlotsByPrice(slots, count);
+            for (int i = 0; i < count; i++) {
+                result.add(products[slots[i]]);
+            }
+            return result;
+        }
+
+        setMarks(candidates, true);
+        for (int i = from; i < to; i++) {
+            int slot = slotsByPrice[i];
+            if (marks[slot]) {
+                result.add(products[slot]);
+            }
+        }
+        setMarks(candidates, false);
+        return result;
+    }
+
+    /**
+     * Slot of an indexed product, or -1
+     */
+    private int slotOf(Product product) {
+        Long productId = product.getProductId();
+        return productId != null ? slotById.get(productId, -1) : -1;
+    }
+
+    private void setMarks(List<Product> list, boolean marked) {
+        for (Product product : list) {
+            int slot = slotOf(product);
+            if (slot >= 0) {
+                marks[slot] = marked;
+            }
+        }
+    }
+
+    /**
+     * Products whose name or brief description contains the query, ignoring case and accents,
+     * in insertion order. A blank query matches every product.
+     */
+    public List<Product> search(String query) {
+        String folded = TextNormalizer.fold(query != null ? query.trim() : null);
+        if (folded.length() < GRAM) {
+            return scan(folded);
+        }
+
+        int[] candidates = candidateSlots(folded);
+        List<Product> result = new ArrayList<>();
+        for (int slot : candidates) {
+            // Freed slots are still listed until the next compaction
+            if (products[slot] != null && searchText[slot].contains(folded)) {
+                result.add(products[slot]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The products of an earlier result that also contain the query, keeping their order. The
+     * earlier products must still be indexed unchanged.
+     */
+    public List<Product> refine(List<Product> previous, String query) {
+        String folded = TextNormalizer.fold(query != null ? query.trim() : null);
+        List<Product> result = new ArrayList<>();
+        for (Product product : previous) {
+            int slot = slotOf(product);
+            if (slot >= 0 && (folded.isEmpty() || searchText[slot].contains(folded))) {
+                result.add(products[slot]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Score the catalog against the words of a folded query, unless it is the last one scored
+     */
+    private void rank(String folded) {
+        if (folded.equals(rankedQuery)) {
+            return;
+        }
+        for (int i = 0; i < rankedCount; i++) {
+            relevance[rankedSlots[i]] = 0f;
+            wordMasks[rankedSlots[i]] = 0;
+        }
+
+        String[] words = TermIndex.tokenize(folded);
+        if (words.length > MAX_QUERY_WORDS) {
+            words = Arrays.copyOf(words, MAX_QUERY_WORDS);
+        }
+        rankedCount = terms.score(words, relevance, wordMasks, rankedSlots, 0);
+        rankedWordsMask = (1 << words.length) - 1;
+        rankedQuery = folded;
+    }
+
+    private boolean nameContains(int slot, String folded) {
+        String text = searchText[slot];
+        int position = text.indexOf(folded);
+        return position >= 0 && position < text.indexOf('\n');
+    }
+
+    /**
+     * Short queries have no trigram to look up, and match most of the catalog anyway
+     */
+    private List<Product> scan(String folded) {
+        List<Product> result = new ArrayList<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (products[slot] != null && (folded.isEmpty() || searchText[slot].contains(folded))) {
+                result.add(products[slot]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sorted slots whose text contains every trigram of the query
+     */
+    private int[] candidateSlots(String folded) {
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            PostingList list = postings.get(trigram(folded, i));
+            if (list == null) {
+                return new int[0];
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+
+        // Start from the rarest trigram so every merge works on the smallest possible set
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] candidates = Arrays.copyOf(lists.get(0).slots, lists.get(0).size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = intersect(candidates, count, lists.get(i));
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Keep the first {@code count} candidates that also appear in the list, in place
+     */
+    private static int intersect(int[] candidates, int count, PostingList list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            int slot = candidates[i];
+            while (j < list.size && list.slots[j] < slot) {
+                j++;
+            }
+            if (j < list.size && list.slots[j] == slot) {
+                candidates[kept++] = slot;
+            }
+        }
+        return kept;
+    }
+
+    private void addPostings(int slot) {
+        String text = searchText[slot];
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            long key = trigram(text, i);
+            PostingList list = postings.get(key);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(key, list);
+            }
+            list.append(slot);
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    private static String buildSearchText(Product product) {
+        // The separator keeps a query from matching across the end of the name
+        return TextNormalizer.fold(product.getProductName()) + '\n'
+                + TextNormalizer.fold(product.getBriefDescription());
+    }
+
+    /**
+     * Index a product in a new slot, without adding it to the price order. Returns the slot,
+     * or -1 if the product cannot be indexed.
+     */
+    private int putSlot(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return -1;
+        }
+        removeSlot(slotById.get(product.getProductId(), -1));
+
+        if (slotCount == products.length) {
+            grow();
+        }
+        int slot = slotCount++;
+        products[slot] = product;
+        searchText[slot] = buildSearchText(product);
+        priceBySlot[slot] = product.getPrice();
+        slotById.put(product.getProductId(), slot);
+        addPostings(slot);
+        terms.add(slot, product);
+        rankedQuery = null;
+        liveCount++;
+        return slot;
+    }
+
+    private void removeSlot(int slot) {
+        if (slot < 0 || products[slot] == null) {
+            return;
+        }
+        removePrice(slot);
+        terms.remove(slot, products[slot]);
+        rankedQuery = null;
+        slotById.remove(products[slot].getProductId());
+        products[slot] = null;
+        searchText[slot] = null;
+        liveCount--;
+    }
+
+    private void insertPrice(int slot) {
+        double price = priceBySlot[slot];
+        // The new slot is the highest, so it goes after every product with the same price
+        int position = upperBound(price);
+        System.arraycopy(slotsByPrice, position, slotsByPrice, position + 1, priceCount - position);
+        System.arraycopy(sortedPrices, position, sortedPrices, position + 1, priceCount - position);
+        slotsByPrice[position] = slot;
+        sortedPrices[position] = price;
+        priceCount++;
+    }
+
+    private void removePrice(int slot) {
+        double price = priceBySlot[slot];
+        for (int i = lowerBound(price); i < priceCount && sortedPrices[i] == price; i++) {
+            if (slotsByPrice[i] == slot) {
+                System.arraycopy(slotsByPrice, i + 1, slotsByPrice, i, priceCount - i - 1);
+                System.arraycopy(sortedPrices, i + 1, sortedPrices, i, priceCount - i - 1);
+                priceCount--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * First position in the price order with a price of at least the given one
+     */
+    private int lowerBound(double price) {
+        int low = 0;
+        int high = priceCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid] < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First position in the price order with a price above the given one
+     */
+    private int upperBound(double price) {
+        int low = 0;
+        int high = priceCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid] <= price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Bottom-up merge sort of slots by price, then slot, without boxing
+     */
+    private void sortSlotsByPrice(int[] slots, int count) {
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count - width; low += 2 * width) {
+                int mid = low + width;
+                int high = Math.min(low + 2 * width, count);
+                System.arraycopy(slots, low, buffer, low, high - low);
+                int left = low;
+                int right = mid;
+                for (int i = low; i < high; i++) {
+                    if (right >= high || (left < mid && comparePrice(buffer[left], buffer[right]) <= 0)) {
+                        slots[i] = buffer[left++];
+                    } else {
+                        slots[i] = buffer[right++];
+                    }
+                }
+            }
+        }
+    }
+
+    private int comparePrice(int slot, int other) {
+        int byPrice = Double.compare(priceBySlot[slot], priceBySlot[other]);
+        return byPrice != 0 ? byPrice : Integer.compare(slot, other);
+    }
+
+    private void grow() {
+        int capacity = products.length * 2;
+        products = Arrays.copyOf(products, capacity);
+        searchText = Arrays.copyOf(searchText, capacity);
+        priceBySlot = Arrays.copyOf(priceBySlot, capacity);
+        slotsByPrice = Arrays.copyOf(slotsByPrice, capacity);
+        sortedPrices = Arrays.copyOf(sortedPrices, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        relevance = Arrays.copyOf(relevance, capacity);
+        wordMasks = Arrays.copyOf(wordMasks, capacity);
+        rankedSlots = Arrays.copyOf(rankedSlots, capacity);
+        terms.grow(capacity);
+    }
+
+    private void compactIfSparse() {
+        if (slotCount - liveCount <= liveCount || slotCount < INITIAL_CAPACITY) {
+            return;
+        }
+        // Move live slots down, keeping their order and their folded text
+        int[] movedTo = new int[slotCount];
+        int target = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (products[slot] != null) {
+                products[target] = products[slot];
+                searchText[target] = searchText[slot];
+                priceBySlot[target] = priceBySlot[slot];
+                slotById.put(products[target].getProductId(), target);
+                movedTo[slot] = target;
+                target++;
+            }
+        }
+        // Relative slot order is unchanged, so the price order only needs renumbering
+        for (int i = 0; i < priceCount; i++) {
+            slotsByPrice[i] = movedTo[slotsByPrice[i]];
+        }
+        Arrays.fill(products, target, slotCount, null);
+        Arrays.fill(searchText, target, slotCount, null);
+        slotCount = target;
+
+        // Slot numbers changed, so the posting lists are rebuilt without the freed slots
+        postings.clear();
+        terms.clear(products.length);
+        for (int slot = 0; slot < slotCount; slot++) {
+            addPostings(slot);
+            terms.add(slot, products[slot]);
+        }
+        // The last ranking refers to the old slot numbers
+        for (int i = 0; i < rankedCount; i++) {
+            relevance[rankedSlots[i]] = 0f;
+            wordMasks[rankedSlots[i]] = 0;
+        }
+        rankedCount = 0;
+        rankedQuery = null;
+    }
+
+    /**
+     * Growable sorted list of slots, kept as primitive ints
+     */
+    private static final class PostingList {
+        int[] slots = new int[4];
+        int size = 0;
+
+        void append(int slot) {
+            // A trigram repeated within one product is listed once
+            if (size > 0 && slots[size - 1] == slot) {
+                return;
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
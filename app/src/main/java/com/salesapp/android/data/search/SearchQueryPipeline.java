@@ -0,0 +1,167 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.callback.ProductCallback;
+import com.salesapp.android.data.model.Product;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import retrofit2.Call;
+
+/**
+ * Turns the text of a search box into searches. A query runs once typing has paused for the
+ * debounce delay, and not at all if it folds to the last query run. Every query is answered
+ * from the local catalog first. While the local catalog is only partly loaded, the server is
+ * searched as well; a newer query cancels the server search of an older one, so server
+ * results only ever arrive for the latest query.
+ *
+ * Not thread-safe: calls, timer tasks and server callbacks all belong on one thread, normally
+ * the main thread.
+ */
+public class SearchQueryPipeline {
+    /**
+     * Runs tasks after a delay, e.g. a Handler
+     */
+    public interface Timer {
+        void postDelayed(Runnable task, long delayMillis);
+
+        void removeCallbacks(Runnable task);
+    }
+
+    /**
+     * Searches the server, e.g. {@link com.salesapp.android.data.service.ProductService#searchProducts}.
+     * Returns the call so it can be cancelled.
+     */
+    public interface RemoteSearch {
+        Call<List<Product>> search(String query, ProductCallback<List<Product>> callback);
+    }
+
+    public interface Listener {
+        /**
+         * Filter the local catalog by the query. Called first for every query run.
+         */
+        void onQuery(String query);
+
+        /**
+         * Server matches for the latest query, missing from the partly loaded local catalog
+         */
+        void onRemoteResults(String query, List<Product> products);
+
+        default void onRemoteError(String query, String message) {
+        }
+    }
+
+    private final Timer timer;
+    private final long debounceMillis;
+    private final int remoteMinLength;
+    private final RemoteSearch remoteSearch;
+    private final BooleanSupplier catalogPartial;
+    private final Listener listener;
+
+    private final Runnable runPending = this::runPending;
+    private String pendingQuery;
+    private String lastFoldedQuery;
+
+    private Call<List<Product>> inFlight;
+    // Incremented whenever a server search is started or cancelled, so a late callback is ignored
+    private int remoteGeneration = 0;
+
+    /**
+     * @param catalogPartial True while the local catalog may be missing products
+     * @param remoteMinLength Shorter queries are answered locally only
+     */
+    public SearchQueryPipeline(Timer timer, long debounceMillis, int remoteMinLength,
+                               RemoteSearch remoteSearch, BooleanSupplier catalogPartial, Listener listener) {
+        this.timer = timer;
+        this.debounceMillis = debounceMillis;
+        this.remoteMinLength = remoteMinLength;
+        this.remoteSearch = remoteSearch;
+        this.catalogPartial = catalogPartial;
+        this.listener = listener;
+    }
+
+    /**
+     * The search text changed. Replaces any query still waiting for the debounce delay.
+     */
+    public void onQueryChanged(String text) {
+        pendingQuery = text != null ? text : "";
+        timer.removeCallbacks(runPending);
+        timer.postDelayed(runPending, debounceMillis);
+    }
+
+    /**
+     * Run a query now instead of after the debounce delay, e.g. for the keyboard's search action
+     */
+    public void submit(String text) {
+        pendingQuery = text != null ? text : "";
+        timer.removeCallbacks(runPending);
+        runPending();
+    }
+
+    /**
+     * Drop the waiting query and cancel the server search in flight. The next query runs even
+     * if it equals the last one.
+     */
+    public void cancel() {
+        timer.removeCallbacks(runPending);
+        pendingQuery = null;
+        lastFoldedQuery = null;
+        cancelRemoteSearch();
+    }
+
+    /**
+     * True while a server search is in flight
+     */
+    public boolean isSearchingRemotely() {
+        return inFlight != null;
+    }
+
+    private void runPending() {
+        if (pendingQuery == null) {
+            return;
+        }
+        String query = pendingQuery.trim();
+        pendingQuery = null;
+
+        String foldedQuery = TextNormalizer.fold(query);
+        if (foldedQuery.equals(lastFoldedQuery)) {
+            return;
+        }
+        lastFoldedQuery = foldedQuery;
+
+        cancelRemoteSearch();
+        listener.onQuery(query);
+        if (foldedQuery.length() >= remoteMinLength && catalogPartial.getAsBoolean()) {
+            searchRemotely(query);
+        }
+    }
+
+    private void searchRemotely(String query) {
+        final int generation = ++remoteGeneration;
+        inFlight = remoteSearch.search(query, new ProductCallback<List<Product>>() {
+            @Override
+            public void onSuccess(List<Product> result) {
+                if (generation == remoteGeneration) {
+                    inFlight = null;
+                    listener.onRemoteResults(query, result);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                if (generation == remoteGeneration) {
+                    inFlight = null;
+                    listener.onRemoteError(query, message);
+                }
+            }
+        });
+    }
+
+    private void cancelRemoteSearch() {
+        remoteGeneration++;
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+}
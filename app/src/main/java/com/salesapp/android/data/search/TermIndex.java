@@ -0,0 +1,281 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.model.Product;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from the words of a product's name, descriptions and technical specifications
+ * to the slots containing them, with term frequencies for BM25 scoring. Slots are assigned by
+ * {@link ProductSearchIndex}, which owns this index. Not thread-safe.
+ *
+ * A word in the name counts three times and a word in the brief description twice, so a
+ * match there outranks one buried in the specifications (a simple form of BM25F).
+ */
+final class TermIndex {
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRIEF_WEIGHT = 2;
+    private static final int DETAIL_WEIGHT = 1;
+
+    // Weight of a term matched by prefix or with typos, relative to an exact match
+    private static final float PREFIX_WEIGHT = 0.8f;
+    private static final float TYPO_WEIGHT = 0.5f;
+    // Words shorter than this must be spelled exactly
+    private static final int MIN_TYPO_LENGTH = 4;
+    private static final int LONG_WORD_LENGTH = 8;
+    // Bounds the work of a short prefix such as "4", which may start thousands of words
+    private static final int MAX_EXPANSIONS = 64;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // Weighted word count by slot; 0 for a free slot
+    private int[] docLength;
+    private int docCount = 0;
+    private long totalLength = 0;
+
+    TermIndex(int capacity) {
+        docLength = new int[capacity];
+    }
+
+    void clear(int capacity) {
+        terms.clear();
+        docLength = new int[capacity];
+        docCount = 0;
+        totalLength = 0;
+    }
+
+    void grow(int capacity) {
+        docLength = Arrays.copyOf(docLength, capacity);
+    }
+
+    void add(int slot, Product product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = countWords(product, frequencies);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Postings postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(entry.getKey(), postings);
+            }
+            postings.append(slot, entry.getValue());
+        }
+        if (length > 0) {
+            docLength[slot] = length;
+            docCount++;
+            totalLength += length;
+        }
+    }
+
+    /**
+     * Forget the product in a slot. Its postings stay until the next rebuild and are skipped.
+     */
+    void remove(int slot, Product product) {
+        if (docLength[slot] == 0) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        countWords(product, frequencies);
+        for (String term : frequencies.keySet()) {
+            Postings postings = terms.get(term);
+            if (postings != null && --postings.liveDocs == 0) {
+                // Keeps typo matching from expanding to words no product has anymore
+                terms.remove(term);
+            }
+        }
+        totalLength -= docLength[slot];
+        docLength[slot] = 0;
+        docCount--;
+    }
+
+    /**
+     * Add the BM25 score of every query word to {@code scores[slot]} for each slot containing
+     * a matching term, and set bit i of {@code masks[slot]} when word i matched. The last word
+     * also matches as a prefix, since it may still be being typed. A longer word that matches
+     * nothing that way matches terms within a bounded edit distance instead. Slots touched for
+     * the first time are appended to {@code touched}; returns the new number of touched slots.
+     */
+    int score(String[] words, float[] scores, int[] masks, int[] touched, int touchedCount) {
+        if (docCount == 0) {
+            return touchedCount;
+        }
+        float averageLength = (float) totalLength / docCount;
+
+        for (int i = 0; i < words.length; i++) {
+            Map<Postings, Float> expansions = expand(words[i], i == words.length - 1);
+            for (Map.Entry<Postings, Float> expansion : expansions.entrySet()) {
+                Postings postings = expansion.getKey();
+                float idf = (float) Math.log(1 + (docCount - postings.liveDocs + 0.5) / (postings.liveDocs + 0.5));
+                float weight = idf * expansion.getValue();
+
+                for (int p = 0; p < postings.size; p++) {
+                    int slot = postings.slots[p];
+                    int length = docLength[slot];
+                    if (length == 0) {
+                        continue;
+                    }
+                    int tf = postings.frequencies[p];
+                    float norm = K1 * (1 - B + B * length / averageLength);
+                    if (masks[slot] == 0) {
+                        touched[touchedCount++] = slot;
+                    }
+                    scores[slot] += weight * tf * (K1 + 1) / (tf + norm);
+                    masks[slot] |= 1 << i;
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    /**
+     * Terms a query word matches, with the weight of each match
+     */
+    private Map<Postings, Float> expand(String word, boolean isLast) {
+        Map<Postings, Float> expansions = new IdentityHashMap<>();
+        Postings exact = terms.get(word);
+        if (exact != null) {
+            expansions.put(exact, 1f);
+        }
+
+        if (isLast) {
+            NavigableMap<String, Postings> prefixed =
+                    terms.subMap(word, false, word + Character.MAX_VALUE, false);
+            for (Postings postings : prefixed.values()) {
+                if (expansions.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                expansions.put(postings, PREFIX_WEIGHT);
+            }
+        }
+
+        // Typos are only assumed for a word no term is spelled like. Numbers and model codes
+        // are not misspelled the way words are.
+        if (expansions.isEmpty() && word.length() >= MIN_TYPO_LENGTH && !hasDigit(word)) {
+            int maxDistance = word.length() >= LONG_WORD_LENGTH ? 2 : 1;
+            // Typos are rarely in the first letter, which narrows the scan to one range
+            String first = word.substring(0, 1);
+            NavigableMap<String, Postings> candidates =
+                    terms.subMap(first, true, first + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Postings> candidate : candidates.entrySet()) {
+                String term = candidate.getKey();
+                if (Math.abs(term.length() - word.length()) > maxDistance) {
+                    continue;
+                }
+                int distance = boundedDistance(word, term, maxDistance);
+                if (distance <= maxDistance) {
+                    expansions.put(candidate.getValue(), TYPO_WEIGHT / distance);
+                }
+            }
+        }
+        return expansions;
+    }
+
+    /**
+     * Split folded text into words of letters and digits
+     */
+    static String[] tokenize(String folded) {
+        int count = 0;
+        String[] words = new String[8];
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (count == words.length) {
+                    words = Arrays.copyOf(words, count * 2);
+                }
+                words[count++] = folded.substring(start, i);
+                start = -1;
+            }
+        }
+        return Arrays.copyOf(words, count);
+    }
+
+    /**
+     * Edit distance counting a swap of two adjacent letters as one edit (optimal string
+     * alignment), or {@code max + 1} as soon as it is known to exceed max
+     */
+    static int boundedDistance(String a, String b, int max) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static int countWords(Product product, Map<String, Integer> frequencies) {
+        return countWords(product.getProductName(), NAME_WEIGHT, frequencies)
+                + countWords(product.getBriefDescription(), BRIEF_WEIGHT, frequencies)
+                + countWords(product.getFullDescription(), DETAIL_WEIGHT, frequencies)
+                + countWords(product.getTechnicalSpecifications(), DETAIL_WEIGHT, frequencies);
+    }
+
+    private static int countWords(String text, int weight, Map<String, Integer> frequencies) {
+        String[] words = tokenize(TextNormalizer.fold(text));
+        for (String word : words) {
+            Integer frequency = frequencies.get(word);
+            frequencies.put(word, frequency != null ? frequency + weight : weight);
+        }
+        return words.length * weight;
+    }
+
+    private static boolean hasDigit(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Slots containing a term with the term's weighted frequency in each, as primitive ints
+     */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int[] frequencies = new int[4];
+        int size = 0;
+        int liveDocs = 0;
+
+        void append(int slot, int frequency) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            slots[size] = slot;
+            frequencies[size] = frequency;
+            size++;
+            liveDocs++;
+        }
+    }
+}
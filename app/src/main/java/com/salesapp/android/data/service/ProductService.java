@@ -1,13 +1,20 @@
 package com.salesapp.android.data.service;
 
+import android.content.Context;
+
 import com.salesapp.android.data.callback.ProductCallback;
+import com.salesapp.android.data.callback.ProductStreamCallback;
 import com.salesapp.android.data.model.Category;
 import com.salesapp.android.data.model.Product;
 import com.salesapp.android.data.model.request.ProductRequest;
+import com.salesapp.android.data.repository.ProductPagingSource;
 import com.salesapp.android.data.repository.ProductRepository;
 
 import java.util.List;
 
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+
 /**
  * Service layer for handling product-related business logic
  */
@@ -15,8 +22,8 @@ public class ProductService {
     private final ProductRepository productRepository;
 
     // Constructor with dependency injection
-    public ProductService(String token) {
-        this.productRepository = new ProductRepository(token);
+    public ProductService(Context context, String token) {
+        this.productRepository = new ProductRepository(context, token);
     }
 
     /**
@@ -26,6 +33,27 @@ public class ProductService {
         productRepository.getAllProducts(callback);
     }
 
+    /**
+     * Download all products, delivered in chunks as they are decoded
+     */
+    public Call<ResponseBody> streamAllProducts(ProductStreamCallback callback) {
+        return productRepository.streamAllProducts(callback);
+    }
+
+    /**
+     * Create a paging source over the product catalog
+     */
+    public ProductPagingSource newPagingSource() {
+        return productRepository.newPagingSource();
+    }
+
+    /**
+     * Get the locally persisted products
+     */
+    public void getCachedProducts(ProductCallback<List<Product>> callback) {
+        productRepository.getCachedProducts(callback);
+    }
+
     /**
      * Get product by ID
      */
@@ -41,10 +69,10 @@ public class ProductService {
     }
 
     /**
-     * Search products by name
+     * Search products by name. Returns the call so it can be cancelled.
      */
-    public void searchProducts(String query, ProductCallback<List<Product>> callback) {
-        productRepository.searchProducts(query, callback);
+    public Call<List<Product>> searchProducts(String query, ProductCallback<List<Product>> callback) {
+        return productRepository.searchProducts(query, callback);
     }
 
     /**
@@ -76,17 +104,9 @@ public class ProductService {
     }
 
     /**
-     * Filter products based on search query, category, and price range
-     */
-    public List<Product> filterProducts(List<Product> products, String query, Long categoryId,
-                                        double minPrice, double maxPrice) {
-        return productRepository.filterProducts(products, query, categoryId, minPrice, maxPrice);
-    }
-
-    /**
-     * Sort products by price
+     * Get the locally persisted categories
      */
-    public List<Product> sortProductsByPrice(List<Product> products, boolean ascending) {
-        return productRepository.sortProductsByPrice(products, ascending);
+    public void getCachedCategories(ProductCallback<List<Category>> callback) {
+        productRepository.getCachedCategories(callback);
     }
-}
\ No newline at end of file
+}
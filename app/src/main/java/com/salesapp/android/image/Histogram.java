@@ -0,0 +1,77 @@
+package com.salesapp.android.image;
+
+import java.util.Arrays;
+
+/**
+ * Counts values into fixed buckets. Bucket i holds values up to and including bounds[i];
+ * the last bucket holds everything above the largest bound. Percentiles are reported as the
+ * upper bound of the bucket they fall in, which is precise enough to spot regressions
+ * between builds. Thread-safe.
+ */
+public final class Histogram {
+    private final long[] bounds;
+    private final long[] counts;
+    private long total;
+    private long sum;
+    private long max;
+
+    /**
+     * @param bounds bucket upper bounds, ascending
+     */
+    public Histogram(long... bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Bounds must be ascending");
+            }
+        }
+        this.bounds = bounds.clone();
+        this.counts = new long[bounds.length + 1];
+    }
+
+    public synchronized void record(long value) {
+        int bucket = Arrays.binarySearch(bounds, value);
+        counts[bucket >= 0 ? bucket : -bucket - 1]++;
+        total++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    public synchronized long[] getCounts() {
+        return counts.clone();
+    }
+
+    public synchronized long getCount() {
+        return total;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return total > 0 ? (double) sum / total : 0;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, or the largest value seen when
+     * that is in the overflow bucket. 0 when nothing was recorded.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(bounds[i], max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,137 @@
+package com.salesapp.android.image;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.request.RequestOptions;
+import com.salesapp.android.data.preference.PreferenceManager;
+import com.salesapp.android.utils.Constants;
+
+/**
+ * How product images use memory. Glide's caches are sized from the device's memory class
+ * when Glide starts; the mode can then be switched at runtime to compare heap usage.
+ *
+ * STANDARD keeps ARGB_8888 bitmaps and the full memory cache. COMPACT decodes opaque images
+ * as RGB_565, half the bytes per pixel, and halves the memory cache. It is the default on
+ * low-RAM devices, and memory pressure while the app is in use switches to it until the
+ * process ends.
+ */
+public final class ImageCachePolicy {
+    public enum Mode {
+        STANDARD,
+        COMPACT
+    }
+
+    private static final RequestOptions STANDARD_OPTIONS = new RequestOptions();
+    private static final RequestOptions COMPACT_OPTIONS = new RequestOptions()
+            .format(DecodeFormat.PREFER_RGB_565);
+
+    private static volatile Mode mode = Mode.STANDARD;
+    // Set when Glide starts
+    private static LruResourceCache memoryCache;
+    private static long diskCacheBytes;
+    private static boolean underPressure;
+
+    private ImageCachePolicy() {
+    }
+
+    /**
+     * Size Glide's caches. Called once, from the Glide module.
+     */
+    static synchronized void applyOptions(Context context, GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean lowRam = activityManager.isLowRamDevice()
+                || activityManager.getMemoryClass() <= Constants.IMAGE_LOW_RAM_MEMORY_CLASS_MB;
+        long heapBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+
+        memoryCache = new LruResourceCache(heapBytes / Constants.IMAGE_MEMORY_CACHE_HEAP_DIVISOR);
+        builder.setMemoryCache(memoryCache);
+        long diskCacheMb = lowRam ? Constants.IMAGE_DISK_CACHE_LOW_RAM_MB : Constants.IMAGE_DISK_CACHE_MB;
+        diskCacheBytes = diskCacheMb * 1024 * 1024;
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, diskCacheBytes));
+
+        String saved = new PreferenceManager(context).getImageCachePolicy();
+        mode = lowRam ? Mode.COMPACT : Mode.STANDARD;
+        if (saved != null) {
+            try {
+                mode = Mode.valueOf(saved);
+            } catch (IllegalArgumentException e) {
+                // E.g. saved by a version with other modes; Glide must still start
+                Log.e("ImageCachePolicy", "Unknown saved mode " + saved + ", using " + mode, e);
+            }
+        }
+        applyMode();
+        logMemory("Glide started, low RAM " + lowRam);
+    }
+
+    /**
+     * Size of Glide's disk cache, once Glide has started
+     */
+    public static synchronized long getDiskCacheBytes() {
+        return diskCacheBytes;
+    }
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Switch modes and remember the choice. Images already decoded keep their format until
+     * they leave the caches.
+     */
+    public static synchronized void setMode(Context context, Mode newMode) {
+        new PreferenceManager(context).setImageCachePolicy(newMode.name());
+        mode = newMode;
+        applyMode();
+        logMemory("Mode set");
+    }
+
+    /**
+     * Request options for the current mode
+     */
+    public static RequestOptions requestOptions() {
+        return mode == Mode.COMPACT ? COMPACT_OPTIONS : STANDARD_OPTIONS;
+    }
+
+    /**
+     * Glide trims its own caches on these callbacks. On top of that, memory pressure while
+     * the app is in use switches to COMPACT, without saving it as the chosen mode.
+     */
+    public static synchronized void onTrimMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            if (!underPressure) {
+                underPressure = true;
+                mode = Mode.COMPACT;
+                applyMode();
+            }
+            logMemory("Trim level " + level);
+        }
+    }
+
+    private static void applyMode() {
+        if (memoryCache != null) {
+            memoryCache.setSizeMultiplier(mode == Mode.COMPACT ? 0.5f : 1f);
+        }
+    }
+
+    /**
+     * Log the memory cache and heap sizes, for comparing modes
+     */
+    public static synchronized void logMemory(String reason) {
+        Runtime runtime = Runtime.getRuntime();
+        Log.d("ImageCachePolicy", reason + ": mode " + mode
+                + ", memory cache " + (memoryCache != null ? memoryCache.getCurrentSize() / 1024 : 0)
+                + " of " + (memoryCache != null ? memoryCache.getMaxSize() / 1024 : 0) + " KB"
+                + ", java heap " + (runtime.totalMemory() - runtime.freeMemory()) / 1024 + " KB"
+                // Bitmap pixels live in the native heap from Android 8
+                + ", native heap " + Debug.getNativeHeapAllocatedSize() / 1024 + " KB");
+    }
+}
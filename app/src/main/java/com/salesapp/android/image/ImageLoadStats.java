@@ -0,0 +1,351 @@
+package com.salesapp.android.image;
+
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.target.ViewTarget;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.salesapp.android.utils.Constants;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of product image traffic: bytes downloaded by {@link ProductImageLoader} and
+ * the time requests take to produce a picture. Callers diff two snapshots to see the cost of
+ * one scroll page. Thread-safe.
+ *
+ * Every shown image is also recorded with where it came from (memory, resource or source
+ * disk cache, or the network), the time from the request to the frame that first draws it,
+ * and the size of its decoded bitmap. These go into histograms per data source, which
+ * {@link #exportJson()} reports for comparing builds. Loads from the source disk cache are
+ * mostly decode time, so their histogram shows decode cost.
+ */
+public final class ImageLoadStats {
+    private static final ImageLoadStats INSTANCE = new ImageLoadStats();
+
+    private static final long[] LATENCY_MS_BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096};
+    private static final long[] DECODED_KB_BOUNDS = {16, 32, 64, 128, 256, 512, 1024, 2048, 4096};
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    // Resized variants that failed and were retried with the original URL
+    private final AtomicLong variantFailures = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong downloadNanos = new AtomicLong();
+    // Request to picture, for requests not answered from memory
+    private final AtomicLong loadNanos = new AtomicLong();
+    // Loads into a preload target rather than a view
+    private final AtomicLong preloads = new AtomicLong();
+
+    private final Map<DataSource, Histogram> firstPixelMillis = new EnumMap<>(DataSource.class);
+    private final Histogram decodedKb = new Histogram(DECODED_KB_BOUNDS);
+    // Guarded by this
+    private final Map<String, Integer> failureReasons = new TreeMap<>();
+    private final Map<String, Integer> variantFailureReasons = new TreeMap<>();
+    private final ArrayDeque<ImageEvent> recentEvents = new ArrayDeque<>();
+
+    private ImageLoadStats() {
+        for (DataSource source : DataSource.values()) {
+            firstPixelMillis.put(source, new Histogram(LATENCY_MS_BOUNDS));
+        }
+    }
+
+    public static ImageLoadStats getInstance() {
+        return INSTANCE;
+    }
+
+    void recordDownload(long bytes, long nanos) {
+        downloads.incrementAndGet();
+        downloadedBytes.addAndGet(bytes);
+        downloadNanos.addAndGet(nanos);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(requests.get(), memoryHits.get(), failures.get(), variantFailures.get(),
+                downloads.get(), downloadedBytes.get(), downloadNanos.get(), loadNanos.get());
+    }
+
+    /**
+     * Times one image load from its creation, so create one per load. When the load has a
+     * fallback, attach the same listener to it: a failed resized variant is then only counted
+     * as a variant failure, and the load is counted once, with the fallback's outcome.
+     *
+     * @param productId product the image belongs to, for the recent events
+     */
+    public RequestListener<Drawable> newListener(@Nullable Long productId) {
+        final long startNanos = System.nanoTime();
+        return new RequestListener<Drawable>() {
+            @Override
+            public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                        @NonNull Target<Drawable> target, boolean isFirstResource) {
+                String reason = failureReason(e);
+                if (model instanceof ProductImage) {
+                    // Retried with the original URL, which reports the outcome
+                    variantFailures.incrementAndGet();
+                    recordVariantFailure(reason);
+                    return false;
+                }
+                requests.incrementAndGet();
+                failures.incrementAndGet();
+                recordFailure(productId, reason, (System.nanoTime() - startNanos) / 1_000_000);
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model,
+                                           Target<Drawable> target, @NonNull DataSource dataSource,
+                                           boolean isFirstResource) {
+                requests.incrementAndGet();
+                if (dataSource == DataSource.MEMORY_CACHE) {
+                    memoryHits.incrementAndGet();
+                } else {
+                    loadNanos.addAndGet(System.nanoTime() - startNanos);
+                }
+                if (!(target instanceof ViewTarget)) {
+                    preloads.incrementAndGet();
+                    return false;
+                }
+
+                long decodedBytes = decodedBytes(resource);
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    // The view shows the image from the next frame
+                    Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                            recordShown(productId, dataSource, System.nanoTime() - startNanos, decodedBytes));
+                } else {
+                    recordShown(productId, dataSource, System.nanoTime() - startNanos, decodedBytes);
+                }
+                return false;
+            }
+        };
+    }
+
+    private void recordShown(Long productId, DataSource dataSource, long nanos, long decodedBytes) {
+        long millis = nanos / 1_000_000;
+        firstPixelMillis.get(dataSource).record(millis);
+        decodedKb.record(decodedBytes / 1024);
+        addEvent(new ImageEvent(productId, dataSource.name(), millis, decodedBytes / 1024, null));
+    }
+
+    private synchronized void recordFailure(Long productId, String reason, long millis) {
+        Integer count = failureReasons.get(reason);
+        failureReasons.put(reason, count != null ? count + 1 : 1);
+        addEvent(new ImageEvent(productId, null, millis, 0, reason));
+    }
+
+    private synchronized void recordVariantFailure(String reason) {
+        Integer count = variantFailureReasons.get(reason);
+        variantFailureReasons.put(reason, count != null ? count + 1 : 1);
+    }
+
+    private synchronized void addEvent(ImageEvent event) {
+        if (recentEvents.size() == Constants.IMAGE_RECENT_EVENTS) {
+            recentEvents.removeFirst();
+        }
+        recentEvents.addLast(event);
+    }
+
+    private static String failureReason(@Nullable GlideException e) {
+        if (e == null) {
+            return "Unknown";
+        }
+        List<Throwable> causes = e.getRootCauses();
+        Throwable cause = causes.isEmpty() ? e : causes.get(0);
+        if (cause instanceof HttpException) {
+            return "HTTP " + ((HttpException) cause).getStatusCode();
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    private static long decodedBytes(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() != null) {
+            return ((BitmapDrawable) drawable).getBitmap().getAllocationByteCount();
+        }
+        // Estimated as ARGB_8888
+        return 4L * Math.max(drawable.getIntrinsicWidth(), 0) * Math.max(drawable.getIntrinsicHeight(), 0);
+    }
+
+    /**
+     * One line per data source that has shown images: count and time to first pixel
+     */
+    public String describeFirstPixel() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<DataSource, Histogram> entry : firstPixelMillis.entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(String.format(Locale.US, "%s: %d images, p50 %d ms, p90 %d ms, p99 %d ms",
+                    entry.getKey(), histogram.getCount(), histogram.getPercentile(50),
+                    histogram.getPercentile(90), histogram.getPercentile(99)));
+        }
+        return text.length() > 0 ? text.toString() : "No images shown yet";
+    }
+
+    /**
+     * All image metrics of this process as JSON, to be kept with a build for regression tracking
+     */
+    public synchronized String exportJson() {
+        JsonObject report = new JsonObject();
+        report.addProperty("generatedAt", System.currentTimeMillis());
+        report.addProperty("device", Build.MANUFACTURER + " " + Build.MODEL);
+        report.addProperty("sdk", Build.VERSION.SDK_INT);
+        report.addProperty("cachePolicy", ImageCachePolicy.getMode().name());
+
+        Snapshot totals = snapshot();
+        JsonObject totalsJson = new JsonObject();
+        totalsJson.addProperty("requests", totals.requests);
+        totalsJson.addProperty("memoryHits", totals.memoryHits);
+        totalsJson.addProperty("failures", totals.failures);
+        totalsJson.addProperty("variantFailures", totals.variantFailures);
+        totalsJson.addProperty("preloads", preloads.get());
+        totalsJson.addProperty("downloads", totals.downloads);
+        totalsJson.addProperty("downloadedKb", totals.downloadedBytes / 1024);
+        report.add("totals", totalsJson);
+
+        JsonObject firstPixel = new JsonObject();
+        for (Map.Entry<DataSource, Histogram> entry : firstPixelMillis.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                firstPixel.add(entry.getKey().name(), toJson(entry.getValue()));
+            }
+        }
+        report.add("timeToFirstPixelMs", firstPixel);
+        report.add("decodedKb", toJson(decodedKb));
+
+        report.add("failureReasons", toJson(failureReasons));
+        report.add("variantFailureReasons", toJson(variantFailureReasons));
+
+        JsonArray events = new JsonArray();
+        for (ImageEvent event : recentEvents) {
+            JsonObject eventJson = new JsonObject();
+            eventJson.addProperty("productId", event.productId);
+            eventJson.addProperty("source", event.source);
+            eventJson.addProperty("ms", event.millis);
+            eventJson.addProperty("decodedKb", event.decodedKb);
+            eventJson.addProperty("failure", event.failure);
+            events.add(eventJson);
+        }
+        report.add("recentEvents", events);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(report);
+    }
+
+    private static JsonObject toJson(Map<String, Integer> counts) {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            json.addProperty(entry.getKey(), entry.getValue());
+        }
+        return json;
+    }
+
+    private static JsonObject toJson(Histogram histogram) {
+        JsonObject json = new JsonObject();
+        json.addProperty("count", histogram.getCount());
+        json.addProperty("mean", Math.round(histogram.getMean() * 10) / 10.0);
+        json.addProperty("p50", histogram.getPercentile(50));
+        json.addProperty("p90", histogram.getPercentile(90));
+        json.addProperty("p99", histogram.getPercentile(99));
+        json.addProperty("max", histogram.getMax());
+        JsonArray bounds = new JsonArray();
+        for (long bound : histogram.getBounds()) {
+            bounds.add(bound);
+        }
+        json.add("bounds", bounds);
+        JsonArray counts = new JsonArray();
+        for (long count : histogram.getCounts()) {
+            counts.add(count);
+        }
+        json.add("counts", counts);
+        return json;
+    }
+
+    /**
+     * One shown or failed image. The source is null for a failure.
+     */
+    private static final class ImageEvent {
+        final Long productId;
+        final String source;
+        final long millis;
+        final long decodedKb;
+        final String failure;
+
+        ImageEvent(Long productId, String source, long millis, long decodedKb, String failure) {
+            this.productId = productId;
+            this.source = source;
+            this.millis = millis;
+            this.decodedKb = decodedKb;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Totals at one point in time
+     */
+    public static final class Snapshot {
+        public final long requests;
+        public final long memoryHits;
+        public final long failures;
+        public final long variantFailures;
+        public final long downloads;
+        public final long downloadedBytes;
+        public final long downloadNanos;
+        public final long loadNanos;
+
+        Snapshot(long requests, long memoryHits, long failures, long variantFailures, long downloads,
+                 long downloadedBytes, long downloadNanos, long loadNanos) {
+            this.requests = requests;
+            this.memoryHits = memoryHits;
+            this.failures = failures;
+            this.variantFailures = variantFailures;
+            this.downloads = downloads;
+            this.downloadedBytes = downloadedBytes;
+            this.downloadNanos = downloadNanos;
+            this.loadNanos = loadNanos;
+        }
+
+        /**
+         * What happened between an earlier snapshot and this one
+         */
+        public Snapshot minus(Snapshot earlier) {
+            return new Snapshot(requests - earlier.requests, memoryHits - earlier.memoryHits,
+                    failures - earlier.failures, variantFailures - earlier.variantFailures,
+                    downloads - earlier.downloads,
+                    downloadedBytes - earlier.downloadedBytes, downloadNanos - earlier.downloadNanos,
+                    loadNanos - earlier.loadNanos);
+        }
+
+        @Override
+        public String toString() {
+            long loaded = requests - memoryHits - failures;
+            return String.format(Locale.US,
+                    "%d images (%d from memory, %d failed, %d fell back to the original), %d downloads, "
+                            + "%.1f KB, %.1f ms per download, %.1f ms per load and decode",
+                    requests, memoryHits, failures, variantFailures, downloads, downloadedBytes / 1024.0,
+                    downloads > 0 ? downloadNanos / 1e6 / downloads : 0.0,
+                    loaded > 0 ? loadNanos / 1e6 / loaded : 0.0);
+        }
+    }
+}
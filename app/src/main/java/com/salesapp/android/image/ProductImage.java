@@ -0,0 +1,78 @@
+package com.salesapp.android.image;
+
+import com.salesapp.android.utils.Constants;
+
+import java.util.Objects;
+
+/**
+ * Glide model for a product picture. {@link ProductImageLoader} turns it into a request for a
+ * server-resized variant matching the target view, so a grid tile does not download and
+ * decode the full-resolution original.
+ *
+ * Requested sizes are rounded up to steps of {@link Constants#IMAGE_SIZE_STEP_PX}, so views of
+ * nearly the same size share one variant in the caches.
+ */
+public final class ProductImage {
+    private final String url;
+    private final Long productId;
+
+    public ProductImage(String url, Long productId) {
+        this.url = url;
+        this.productId = productId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    /**
+     * URL of the variant for a target size in pixels. Returns the original URL for a size
+     * that is not known yet, and for images not served over HTTP.
+     */
+    public String urlFor(int width, int height) {
+        if (width <= 0 || height <= 0 || url == null
+                || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            return url;
+        }
+
+        // The fragment stays last
+        int fragmentStart = url.indexOf('#');
+        String base = fragmentStart >= 0 ? url.substring(0, fragmentStart) : url;
+        String fragment = fragmentStart >= 0 ? url.substring(fragmentStart) : "";
+        String separator = base.indexOf('?') >= 0 ? "&" : "?";
+        return base + separator + Constants.IMAGE_WIDTH_PARAM + "=" + roundUp(width)
+                + "&" + Constants.IMAGE_HEIGHT_PARAM + "=" + roundUp(height) + fragment;
+    }
+
+    private static int roundUp(int size) {
+        int step = Constants.IMAGE_SIZE_STEP_PX;
+        int rounded = (size + step - 1) / step * step;
+        return Math.min(rounded, Constants.IMAGE_MAX_REQUEST_PX);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProductImage that = (ProductImage) o;
+        return Objects.equals(url, that.url) && Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(url, productId);
+    }
+
+    @Override
+    public String toString() {
+        return "product " + productId + ": " + url;
+    }
+}
@@ -0,0 +1,173 @@
+package com.salesapp.android.image;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelCache;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.model.stream.BaseGlideUrlLoader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads a {@link ProductImage} from the variant sized for the target view. Downloads go
+ * through the app's regular URL loader, counted in {@link ImageLoadStats}.
+ */
+public class ProductImageLoader extends BaseGlideUrlLoader<ProductImage> {
+    private static final int MODEL_CACHE_SIZE = 500;
+
+    ProductImageLoader(ModelLoader<GlideUrl, InputStream> concreteLoader,
+                       @Nullable ModelCache<ProductImage, GlideUrl> modelCache) {
+        super(concreteLoader, modelCache);
+    }
+
+    @Override
+    protected String getUrl(ProductImage image, int width, int height, Options options) {
+        return image.urlFor(width, height);
+    }
+
+    @Override
+    public boolean handles(@NonNull ProductImage image) {
+        return image.getUrl() != null && !image.getUrl().isEmpty();
+    }
+
+    public static class Factory implements ModelLoaderFactory<ProductImage, InputStream> {
+        // Saves rebuilding the URL when a row is bound again
+        private final ModelCache<ProductImage, GlideUrl> modelCache = new ModelCache<>(MODEL_CACHE_SIZE);
+
+        @NonNull
+        @Override
+        public ModelLoader<ProductImage, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            ModelLoader<GlideUrl, InputStream> urlLoader = multiFactory.build(GlideUrl.class, InputStream.class);
+            return new ProductImageLoader(new CountingUrlLoader(urlLoader), modelCache);
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+
+    /**
+     * Passes loads through, counting the bytes each download delivers
+     */
+    private static class CountingUrlLoader implements ModelLoader<GlideUrl, InputStream> {
+        private final ModelLoader<GlideUrl, InputStream> delegate;
+
+        CountingUrlLoader(ModelLoader<GlideUrl, InputStream> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Nullable
+        @Override
+        public LoadData<InputStream> buildLoadData(@NonNull GlideUrl url, int width, int height,
+                                                   @NonNull Options options) {
+            LoadData<InputStream> loadData = delegate.buildLoadData(url, width, height, options);
+            if (loadData == null) {
+                return null;
+            }
+            return new LoadData<>(loadData.sourceKey, loadData.alternateKeys,
+                    new CountingFetcher(loadData.fetcher));
+        }
+
+        @Override
+        public boolean handles(@NonNull GlideUrl url) {
+            return delegate.handles(url);
+        }
+    }
+
+    private static class CountingFetcher implements DataFetcher<InputStream> {
+        private final DataFetcher<InputStream> delegate;
+        private long startNanos;
+        private CountingInputStream stream;
+
+        CountingFetcher(DataFetcher<InputStream> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+            startNanos = System.nanoTime();
+            delegate.loadData(priority, new DataCallback<InputStream>() {
+                @Override
+                public void onDataReady(@Nullable InputStream data) {
+                    stream = data != null ? new CountingInputStream(data) : null;
+                    callback.onDataReady(stream);
+                }
+
+                @Override
+                public void onLoadFailed(@NonNull Exception e) {
+                    callback.onLoadFailed(e);
+                }
+            });
+        }
+
+        // Glide cleans up once the stream has been read
+        @Override
+        public void cleanup() {
+            if (stream != null) {
+                ImageLoadStats.getInstance().recordDownload(stream.count, System.nanoTime() - startNanos);
+                stream = null;
+            }
+            delegate.cleanup();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return delegate.getDataClass();
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return delegate.getDataSource();
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
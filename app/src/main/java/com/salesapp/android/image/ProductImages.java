@@ -0,0 +1,53 @@
+package com.salesapp.android.image;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * Builds product image requests
+ */
+public final class ProductImages {
+
+    private ProductImages() {
+    }
+
+    /**
+     * Request for the variant of a product image sized for the target view. If the variant
+     * fails, it is retried with the original URL, with the same options and listeners.
+     * Decoding follows the current {@link ImageCachePolicy} mode.
+     *
+     * @param options transformations, placeholder and error drawable, shared by the fallback
+     */
+    public static RequestBuilder<Drawable> load(RequestManager glide, String url, Long productId,
+                                                RequestOptions options) {
+        return load(glide, url, productId, options, null);
+    }
+
+    /**
+     * Same, also reporting to a listener. The listener sees the variant fail before the
+     * fallback starts, with the {@link ProductImage} as the model.
+     */
+    public static RequestBuilder<Drawable> load(RequestManager glide, String url, Long productId,
+                                                RequestOptions options,
+                                                @Nullable RequestListener<Drawable> listener) {
+        // One stats listener for both requests, so the image is counted once
+        RequestListener<Drawable> stats = ImageLoadStats.getInstance().newListener(productId);
+        RequestBuilder<Drawable> fallback = glide.load(url)
+                .apply(options)
+                .apply(ImageCachePolicy.requestOptions())
+                .listener(stats)
+                .addListener(listener);
+        return glide.load(new ProductImage(url, productId))
+                .apply(options)
+                .apply(ImageCachePolicy.requestOptions())
+                .listener(stats)
+                .addListener(listener)
+                .error(fallback);
+    }
+}
@@ -0,0 +1,36 @@
+package com.salesapp.android.image;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.io.InputStream;
+
+/**
+ * Registers the product image loader with Glide and sizes its caches
+ */
+@GlideModule
+public class SalesGlideModule extends AppGlideModule {
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ImageCachePolicy.applyOptions(context, builder);
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(ProductImage.class, InputStream.class, new ProductImageLoader.Factory());
+    }
+
+    // No library modules are declared in the manifest
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
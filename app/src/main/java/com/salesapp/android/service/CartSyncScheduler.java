@@ -0,0 +1,162 @@
+package com.salesapp.android.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.salesapp.android.data.model.response.CartItemResponse;
+import com.salesapp.android.data.model.response.CartResponse;
+import com.salesapp.android.utils.Constants;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules {@link CartSyncWorker}, which refreshes the cart notification in the background.
+ * Each run only happens with a network connection and schedules the next one itself. The
+ * interval doubles for every run that finds the cart unchanged, up to a maximum, and drops
+ * back to the base interval when the cart changes on the server or on this device. The ETag
+ * of the last fetched cart is kept per user, so a run finding the cart unchanged downloads
+ * no body.
+ */
+public class CartSyncScheduler {
+    private static final String TAG = "CartSyncScheduler";
+    static final String WORK_NAME = "cart_sync";
+
+    private static final String PREFS_NAME = "cart_sync";
+    private static final String KEY_UNCHANGED_RUNS = "unchanged_runs";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    // Followed by the user ID
+    private static final String KEY_ETAG_PREFIX = "etag_";
+
+    private CartSyncScheduler() {
+    }
+
+    /**
+     * Start syncing unless a sync is already scheduled. Call when the user is logged in.
+     */
+    public static void schedule(Context context) {
+        enqueue(context, ExistingWorkPolicy.KEEP, getUnchangedRuns(context));
+    }
+
+    /**
+     * The cart was changed on this device. Remember it as the latest known cart and sync again
+     * after the base interval.
+     */
+    public static void onCartChangedLocally(Context context, CartResponse cart) {
+        prefs(context).edit()
+                .putInt(KEY_UNCHANGED_RUNS, 0)
+                .putString(KEY_FINGERPRINT, fingerprint(cart))
+                .apply();
+        enqueue(context, ExistingWorkPolicy.REPLACE, 0);
+    }
+
+    /**
+     * Stop syncing and forget the last known cart and its ETag, e.g. on logout
+     */
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+        prefs(context).edit().clear().apply();
+    }
+
+    /**
+     * ETag of the last cart a sync run fetched for the user, or null
+     */
+    static String getCartETag(Context context, long userId) {
+        return prefs(context).getString(KEY_ETAG_PREFIX + userId, null);
+    }
+
+    /**
+     * Record the cart fetched by a sync run and schedule the next run after it
+     *
+     * @param eTag The cart's ETag, or null if the server sent none
+     */
+    static void onCartSynced(Context context, long userId, CartResponse cart, String eTag) {
+        SharedPreferences prefs = prefs(context);
+        String fingerprint = fingerprint(cart);
+        boolean changed = !fingerprint.equals(prefs.getString(KEY_FINGERPRINT, null));
+        int unchangedRuns = changed ? 0 : prefs.getInt(KEY_UNCHANGED_RUNS, 0) + 1;
+
+        prefs.edit()
+                .putInt(KEY_UNCHANGED_RUNS, unchangedRuns)
+                .putString(KEY_FINGERPRINT, fingerprint)
+                .putString(KEY_ETAG_PREFIX + userId, eTag)
+                .apply();
+
+        // Appended so the next run starts once the current one has finished
+        enqueue(context, ExistingWorkPolicy.APPEND_OR_REPLACE, unchangedRuns);
+    }
+
+    /**
+     * The server answered a sync run with 304 Not Modified. Count it as an unchanged run.
+     */
+    static void onCartNotModified(Context context) {
+        int unchangedRuns = getUnchangedRuns(context) + 1;
+        prefs(context).edit().putInt(KEY_UNCHANGED_RUNS, unchangedRuns).apply();
+        enqueue(context, ExistingWorkPolicy.APPEND_OR_REPLACE, unchangedRuns);
+    }
+
+    /**
+     * Schedule the next run without learning anything about the cart, e.g. after a server error
+     */
+    static void onSyncSkipped(Context context) {
+        enqueue(context, ExistingWorkPolicy.APPEND_OR_REPLACE, getUnchangedRuns(context));
+    }
+
+    /**
+     * Minutes until the next run after the given number of unchanged runs
+     */
+    static long intervalMinutes(int unchangedRuns) {
+        long interval = Constants.CART_SYNC_BASE_INTERVAL_MINUTES;
+        for (int i = 0; i < unchangedRuns && interval < Constants.CART_SYNC_MAX_INTERVAL_MINUTES; i++) {
+            interval *= 2;
+        }
+        return Math.min(interval, Constants.CART_SYNC_MAX_INTERVAL_MINUTES);
+    }
+
+    private static void enqueue(Context context, ExistingWorkPolicy policy, int unchangedRuns) {
+        long delay = intervalMinutes(unchangedRuns);
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CartSyncWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(delay, TimeUnit.MINUTES)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, policy, request);
+        Log.d(TAG, "Cart sync scheduled in " + delay + " minutes");
+    }
+
+    private static int getUnchangedRuns(Context context) {
+        return prefs(context).getInt(KEY_UNCHANGED_RUNS, 0);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Compact description of what the notification shows: item quantities and the total
+     */
+    private static String fingerprint(CartResponse cart) {
+        if (cart == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        if (cart.getItems() != null) {
+            for (CartItemResponse item : cart.getItems()) {
+                builder.append(item.getCartItemId()).append(':').append(item.getQuantity()).append(';');
+            }
+        }
+        return builder.append(cart.getTotalPrice()).toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.salesapp.android.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.salesapp.android.data.preference.PreferenceManager;
+import com.salesapp.android.data.repository.CartRepository;
+
+import java.io.IOException;
+
+/**
+ * Fetches the cart in the background, sending the ETag of the last cart fetched so an
+ * unchanged cart costs no body. A fetched cart is published to the CartStore, which the cart
+ * notification observes, and the next run is scheduled by {@link CartSyncScheduler}.
+ */
+public class CartSyncWorker extends Worker {
+    private static final String TAG = "CartSyncWorker";
+
+    public CartSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        PreferenceManager preferenceManager = new PreferenceManager(context);
+        if (!preferenceManager.isLoggedIn()) {
+            // Scheduled again on the next login
+            return Result.success();
+        }
+
+        try {
+            long userId = preferenceManager.getUserId();
+            CartRepository.FetchResult result = new CartRepository(preferenceManager.getToken())
+                    .fetchCart(CartSyncScheduler.getCartETag(context, userId));
+            if (result == null) {
+                CartSyncScheduler.onSyncSkipped(context);
+            } else if (result.notModified) {
+                CartSyncScheduler.onCartNotModified(context);
+            } else {
+                CartSyncScheduler.onCartSynced(context, userId, result.cart, result.eTag);
+            }
+            return Result.success();
+        } catch (IOException e) {
+            // Retried with exponential backoff once the network is back
+            Log.e(TAG, "Cart sync failed: " + e.getMessage());
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.salesapp.android.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import com.salesapp.android.utils.Constants;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules {@link ImagePrefetchWorker}, which warms Glide's disk cache with the grid-sized
+ * image of every cached product. Runs only on an unmetered network while the device is
+ * charging and idle. A pass walks the catalog in product ID order and can be stopped at any
+ * point; the next run resumes after the last product it handled.
+ */
+public class ImagePrefetchScheduler {
+    private static final String TAG = "ImagePrefetchScheduler";
+    public static final String WORK_NAME = "image_prefetch";
+    public static final String RUN_NOW_WORK_NAME = "image_prefetch_now";
+
+    private static final String PREFS_NAME = "image_prefetch";
+    private static final String KEY_CURSOR = "cursor";
+    private static final String KEY_HITS = "hits";
+    private static final String KEY_FETCHED = "fetched";
+    private static final String KEY_FAILED = "failed";
+    private static final String KEY_BYTES = "bytes";
+    private static final String KEY_LAST_FINISHED_AT = "last_finished_at";
+    private static final String KEY_LAST_OUTCOME = "last_outcome";
+
+    private ImagePrefetchScheduler() {
+    }
+
+    /**
+     * Start prefetching periodically unless already scheduled
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(ImagePrefetchWorker.class,
+                Constants.IMAGE_PREFETCH_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+        Log.d(TAG, "Image prefetch scheduled every " + Constants.IMAGE_PREFETCH_INTERVAL_HOURS + " hours");
+    }
+
+    /**
+     * Run a pass as soon as there is an unmetered network, without waiting for charging and
+     * idle, e.g. from the debug screen
+     */
+    public static void runNow(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ImagePrefetchWorker.class)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(RUN_NOW_WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    /**
+     * Progress of the current pass and the outcome of the last finished one
+     */
+    public static PassStats getStats(Context context) {
+        SharedPreferences prefs = prefs(context);
+        PassStats stats = new PassStats();
+        stats.cursor = prefs.getLong(KEY_CURSOR, 0);
+        stats.hits = prefs.getInt(KEY_HITS, 0);
+        stats.fetched = prefs.getInt(KEY_FETCHED, 0);
+        stats.failed = prefs.getInt(KEY_FAILED, 0);
+        stats.bytes = prefs.getLong(KEY_BYTES, 0);
+        stats.lastFinishedAt = prefs.getLong(KEY_LAST_FINISHED_AT, 0);
+        stats.lastOutcome = prefs.getString(KEY_LAST_OUTCOME, null);
+        return stats;
+    }
+
+    /**
+     * Record progress, so a stopped pass resumes after the last handled product
+     */
+    static void saveProgress(Context context, PassStats stats) {
+        prefs(context).edit()
+                .putLong(KEY_CURSOR, stats.cursor)
+                .putInt(KEY_HITS, stats.hits)
+                .putInt(KEY_FETCHED, stats.fetched)
+                .putInt(KEY_FAILED, stats.failed)
+                .putLong(KEY_BYTES, stats.bytes)
+                .apply();
+    }
+
+    /**
+     * Record the outcome of a finished pass and start the next one from the beginning
+     */
+    static void onPassFinished(Context context, PassStats stats, String outcome) {
+        String summary = outcome + ": " + stats;
+        prefs(context).edit()
+                .putLong(KEY_CURSOR, 0)
+                .putInt(KEY_HITS, 0)
+                .putInt(KEY_FETCHED, 0)
+                .putInt(KEY_FAILED, 0)
+                .putLong(KEY_BYTES, 0)
+                .putLong(KEY_LAST_FINISHED_AT, System.currentTimeMillis())
+                .putString(KEY_LAST_OUTCOME, summary)
+                .apply();
+        Log.d(TAG, "Image prefetch pass finished, " + summary);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Counts of one prefetch pass. Hits are images that were already in the disk cache.
+     */
+    public static class PassStats {
+        public long cursor;
+        public int hits;
+        public int fetched;
+        public int failed;
+        public long bytes;
+        public long lastFinishedAt;
+        public String lastOutcome;
+
+        public int getHitRatePercent() {
+            int checked = hits + fetched;
+            return checked > 0 ? hits * 100 / checked : 0;
+        }
+
+        @Override
+        public String toString() {
+            return hits + " cached, " + fetched + " fetched (" + bytes / 1024 + " KB), "
+                    + failed + " failed, hit rate " + getHitRatePercent() + "%";
+        }
+    }
+}
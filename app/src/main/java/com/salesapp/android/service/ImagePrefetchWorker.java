@@ -0,0 +1,158 @@
+package com.salesapp.android.service;
+
+import android.content.Context;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.salesapp.android.R;
+import com.salesapp.android.data.local.AppDatabase;
+import com.salesapp.android.data.local.entity.ProductEntity;
+import com.salesapp.android.image.ImageCachePolicy;
+import com.salesapp.android.image.ProductImage;
+import com.salesapp.android.utils.Constants;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Downloads the grid-sized image of every persisted product into Glide's disk cache. The
+ * image is requested at the grid's thumbnail size, so it is the same variant a grid row
+ * loads and the row only has to decode it.
+ *
+ * A pass stops once its downloads reach a share of the disk cache, so it does not evict
+ * everything else; products after that point are left to load on demand.
+ */
+public class ImagePrefetchWorker extends Worker {
+    private static final String TAG = "ImagePrefetchWorker";
+    public static final String KEY_DONE = "done";
+    public static final String KEY_TOTAL = "total";
+
+    private static final String OUTCOME_COMPLETE = "Complete";
+    private static final String OUTCOME_BUDGET_REACHED = "Disk budget reached";
+
+    public ImagePrefetchWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        // The periodic and run-now passes share one cursor
+        synchronized (ImagePrefetchWorker.class) {
+            return prefetch(getApplicationContext());
+        }
+    }
+
+    private Result prefetch(Context context) {
+        List<ProductEntity> products = AppDatabase.getInstance(context).productDao().getAll();
+        RequestManager glide = Glide.with(context);
+        long budget = ImageCachePolicy.getDiskCacheBytes() * Constants.IMAGE_PREFETCH_DISK_BUDGET_PERCENT / 100;
+        ImagePrefetchScheduler.PassStats stats = ImagePrefetchScheduler.getStats(context);
+
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        // A row's image is a little narrower than its column, which usually rounds up to the
+        // same variant
+        int width = metrics.widthPixels / Constants.PRODUCT_GRID_SPAN_COUNT;
+        int height = context.getResources().getDimensionPixelSize(R.dimen.product_thumbnail_height);
+
+        Log.d(TAG, "Prefetching " + products.size() + " product images after product " + stats.cursor);
+        for (int i = 0; i < products.size(); i++) {
+            ProductEntity product = products.get(i);
+            if (product.getProductId() <= stats.cursor) {
+                continue;
+            }
+            if (isStopped()) {
+                // Rescheduled by WorkManager; the next run resumes here
+                ImagePrefetchScheduler.saveProgress(context, stats);
+                return Result.success();
+            }
+            if (stats.bytes >= budget) {
+                ImagePrefetchScheduler.onPassFinished(context, stats, OUTCOME_BUDGET_REACHED);
+                return Result.success();
+            }
+
+            String url = product.getImageURL();
+            if (url != null && !url.isEmpty()) {
+                try {
+                    prefetchImage(glide, new ProductImage(url, product.getProductId()), width, height, stats);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ImagePrefetchScheduler.saveProgress(context, stats);
+                    return Result.success();
+                }
+            }
+
+            stats.cursor = product.getProductId();
+            if ((i + 1) % Constants.IMAGE_PREFETCH_SAVE_INTERVAL == 0) {
+                ImagePrefetchScheduler.saveProgress(context, stats);
+            }
+            setProgressAsync(new Data.Builder()
+                    .putInt(KEY_DONE, i + 1)
+                    .putInt(KEY_TOTAL, products.size())
+                    .build());
+        }
+
+        ImagePrefetchScheduler.onPassFinished(context, stats, OUTCOME_COMPLETE);
+        return Result.success();
+    }
+
+    /**
+     * Download one image unless it is already in the disk cache, counting which it was. The
+     * source is read from this request's own listener, so images the grid loads meanwhile are
+     * not counted.
+     */
+    private void prefetchImage(RequestManager glide, ProductImage image, int width, int height,
+                               ImagePrefetchScheduler.PassStats stats) throws InterruptedException {
+        AtomicReference<DataSource> source = new AtomicReference<>();
+        FutureTarget<File> target = glide.downloadOnly()
+                .load(image)
+                .listener(new RequestListener<File>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                                @NonNull Target<File> target, boolean isFirstResource) {
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(@NonNull File resource, @NonNull Object model,
+                                                   Target<File> target, @NonNull DataSource dataSource,
+                                                   boolean isFirstResource) {
+                        source.set(dataSource);
+                        return false;
+                    }
+                })
+                .submit(width, height);
+        try {
+            File file = target.get(Constants.IMAGE_PREFETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            // Only network fetches are counted as downloads
+            if (source.get() == DataSource.REMOTE) {
+                stats.fetched++;
+                stats.bytes += file.length();
+            } else {
+                stats.hits++;
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            stats.failed++;
+            Log.e(TAG, "Prefetch failed for " + image + ": " + e.getMessage());
+        } finally {
+            glide.clear(target);
+        }
+    }
+}
@@ -10,18 +10,29 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.RequestOptions;
 import com.salesapp.android.R;
+import com.salesapp.android.image.ProductImages;
 import com.salesapp.android.ui.cart.CartFragment.CartItemResponseWrapper;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Cart item adapter. New cart contents are diffed on a background thread, so a quantity
+ * change only rebinds its own row; rows keep their cart item ID as a stable ID.
+ */
+public class CartAdapter extends ListAdapter<CartItemResponseWrapper, CartAdapter.CartViewHolder> {
+    private static final RequestOptions IMAGE_OPTIONS = new RequestOptions()
+            .placeholder(R.drawable.ic_launcher_background)
+            .error(R.drawable.ic_launcher_background);
 
-public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder> {
-    private List<CartItemResponseWrapper> cartItems = new ArrayList<>();
     private final Context context;
     private final CartItemListener listener;
 
@@ -31,8 +42,10 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
     }
 
     public CartAdapter(Context context, CartItemListener listener) {
+        super(new CartItemDiffCallback());
         this.context = context;
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -44,27 +57,26 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull CartViewHolder holder, int position) {
-        CartItemResponseWrapper cartItem = cartItems.get(position);
+        CartItemResponseWrapper cartItem = getItem(position);
         holder.bind(cartItem);
     }
 
     @Override
-    public int getItemCount() {
-        return cartItems.size();
+    public long getItemId(int position) {
+        return getItem(position).getCartItemId();
     }
 
     public void setCartItems(List<CartItemResponseWrapper> cartItems) {
-        this.cartItems = cartItems;
-        notifyDataSetChanged();
+        submitList(cartItems);
     }
 
     public List<CartItemResponseWrapper> getCartItems() {
-        return cartItems;
+        return getCurrentList();
     }
 
     public double calculateTotal() {
         double total = 0;
-        for (CartItemResponseWrapper item : cartItems) {
+        for (CartItemResponseWrapper item : getCurrentList()) {
             total += item.getSubtotal();
         }
         return total;
@@ -101,10 +113,7 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
 
             // Load product image
             if (cartItem.getImageURL() != null && !cartItem.getImageURL().isEmpty()) {
-                Glide.with(context)
-                        .load(cartItem.getImageURL())
-                        .placeholder(R.drawable.ic_launcher_background)
-                        .error(R.drawable.ic_launcher_background)
+                ProductImages.load(Glide.with(context), cartItem.getImageURL(), cartItem.getProductId(), IMAGE_OPTIONS)
                         .into(imageViewProduct);
             } else {
                 imageViewProduct.setImageResource(R.drawable.ic_launcher_background);
@@ -134,4 +143,21 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
             });
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Matches cart items by ID and compares what a cart row shows
+     */
+    private static class CartItemDiffCallback extends DiffUtil.ItemCallback<CartItemResponseWrapper> {
+        @Override
+        public boolean areItemsTheSame(@NonNull CartItemResponseWrapper oldItem,
+                                       @NonNull CartItemResponseWrapper newItem) {
+            return Objects.equals(oldItem.getCartItemId(), newItem.getCartItemId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CartItemResponseWrapper oldItem,
+                                          @NonNull CartItemResponseWrapper newItem) {
+            return oldItem.getResponse().hasSameContent(newItem.getResponse());
+        }
+    }
+}
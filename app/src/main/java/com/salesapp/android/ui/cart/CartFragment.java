@@ -11,7 +11,6 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import androidx.annotation.NonNull;
@@ -26,14 +25,20 @@ import com.salesapp.android.R;
 import com.salesapp.android.data.model.response.CartResponse;
 import com.salesapp.android.data.model.response.CartItemResponse;
 import com.salesapp.android.data.preference.PreferenceManager;
+import com.salesapp.android.data.repository.CartMutationCoalescer;
 import com.salesapp.android.data.repository.CartRepository;
-import com.salesapp.android.utils.BadgeUtils;
+import com.salesapp.android.data.repository.CartStore;
+import com.salesapp.android.utils.Constants;
 
 import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class CartFragment extends Fragment implements CartAdapter.CartItemListener {
     private static final String TAG = "CartFragment";
@@ -50,7 +55,11 @@ public class CartFragment extends Fragment implements CartAdapter.CartItemListen
 
     private CartRepository cartRepository;
     private PreferenceManager preferenceManager;
-    private CartResponse currentCart;
+
+    // Bursts of +/- taps on an item are sent as one update with the final quantity
+    private static final ScheduledExecutorService quantityScheduler = Executors.newSingleThreadScheduledExecutor();
+    private CartMutationCoalescer quantityUpdates;
+    private final Map<Long, CartStore.LocalEdit> quantityEdits = new HashMap<>();
 
     @Nullable
     @Override
@@ -77,6 +86,25 @@ public class CartFragment extends Fragment implements CartAdapter.CartItemListen
         // Initialize repositories and preferences
         preferenceManager = new PreferenceManager(requireContext());
         cartRepository = new CartRepository(preferenceManager.getToken());
+        quantityUpdates = new CartMutationCoalescer(cartRepository::updateCartItem,
+                new CartMutationCoalescer.Listener() {
+                    @Override
+                    public void onSettled(Long cartItemId, CartResponse cart) {
+                        // The server cart published by the repository now has the quantity
+                        CartStore.getInstance().finishLocalEdit(quantityEdits.remove(cartItemId));
+                    }
+
+                    @Override
+                    public void onFailed(Long cartItemId, String message) {
+                        // Roll back to the last server quantity
+                        CartStore.getInstance().finishLocalEdit(quantityEdits.remove(cartItemId));
+                        if (isAdded()) {
+                            Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+                        }
+                        Log.e(TAG, "Error updating quantity: " + message);
+                    }
+                },
+                quantityScheduler, Constants.CART_UPDATE_DEBOUNCE_MS);
 
         // Setup RecyclerView
         recyclerViewCart.setLayoutManager(new LinearLayoutManager(requireContext()));
@@ -96,41 +124,66 @@ public class CartFragment extends Fragment implements CartAdapter.CartItemListen
             Toast.makeText(requireContext(), "Checkout functionality coming soon!", Toast.LENGTH_SHORT).show();
         });
 
+        // Render whatever cart the repository publishes, including mutation results
+        CartStore.getInstance().getCart().observe(getViewLifecycleOwner(), this::showCart);
+
         // Load cart data
         loadCart();
     }
 
+    @Override
+    public void onDestroyView() {
+        // Send quantities still being debounced instead of dropping them
+        quantityUpdates.flush();
+        super.onDestroyView();
+    }
+
     private void loadCart() {
-        showLoading(true);
+        // A cart is already known, show it while it is refreshed
+        boolean hasCart = CartStore.getInstance().getCurrentCart() != null;
+        if (!hasCart) {
+            showLoading(true);
+        }
 
         cartRepository.getCart(new CartRepository.CartCallback<CartResponse>() {
             @Override
             public void onSuccess(CartResponse result) {
+                // Already rendered by the CartStore observer, render again once the
+                // views hidden while loading are back. The store cart includes local edits
+                // still waiting for the server.
                 showLoading(false);
-                currentCart = result;
-
-                if (result.getItems() == null || result.getItems().isEmpty()) {
-                    showEmptyCart(true);
-                } else {
-                    showEmptyCart(false);
-                    updateCartAdapter(result.getItems());
-                    updateOrderSummary(result.getTotalPrice());
-                }
-
-                // Update cart badge
-                updateCartBadge();
+                showCart(CartStore.getInstance().getCurrentCart());
             }
 
             @Override
             public void onError(String message) {
+                if (!isAdded()) {
+                    return;
+                }
                 showLoading(false);
-                showEmptyCart(true);
+                if (!hasCart) {
+                    showEmptyCart(true);
+                }
                 Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
                 Log.e(TAG, "Error loading cart: " + message);
             }
         });
     }
 
+    private void showCart(CartResponse cart) {
+        if (cart == null || !isAdded()) {
+            return;
+        }
+
+        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+            showEmptyCart(true);
+        } else {
+            showEmptyCart(false);
+            updateCartAdapter(cart.getItems());
+            updateOrderSummary(cart.getTotalPrice());
+        }
+    }
+
     private void updateCartAdapter(List<CartItemResponse> items) {
         // Convert CartItemResponse to CartItem for adapter
         List<CartItemResponseWrapper> wrappers = new ArrayList<>();
@@ -166,15 +219,6 @@ public class CartFragment extends Fragment implements CartAdapter.CartItemListen
         cardViewCheckout.setVisibility(isEmpty ? View.GONE : View.VISIBLE);
     }
 
-    private void updateCartBadge() {
-        if (getActivity() != null) {
-            BottomNavigationView bottomNavigationView = getActivity().findViewById(R.id.bottomNavigationView);
-            if (bottomNavigationView != null) {
-                BadgeUtils.updateCartBadge(requireContext(), bottomNavigationView);
-            }
-        }
-    }
-
     @Override
     public void onRemoveItem(CartItemResponseWrapper item) {
         if (item.getCartItemId() != null) {
@@ -182,28 +226,27 @@ public class CartFragment extends Fragment implements CartAdapter.CartItemListen
                     .setTitle("Remove Item")
                     .setMessage("Are you sure you want to remove this item from your cart?")
                     .setPositiveButton("Remove", (dialog, which) -> {
-                        showLoading(true);
+                        // A quantity not yet sent for the item no longer matters
+                        quantityUpdates.cancel(item.getCartItemId());
+                        quantityEdits.remove(item.getCartItemId());
+
+                        // Remove the row right away, the server answer confirms or rolls it back
+                        CartStore.LocalEdit edit = CartStore.getInstance().applyLocalEdit(item.getCartItemId(), 0);
                         cartRepository.removeCartItem(item.getCartItemId(), new CartRepository.CartCallback<CartResponse>() {
                             @Override
                             public void onSuccess(CartResponse result) {
-                                showLoading(false);
-                                Toast.makeText(requireContext(), "Item removed from cart", Toast.LENGTH_SHORT).show();
-
-                                if (result.getItems() == null || result.getItems().isEmpty()) {
-                                    showEmptyCart(true);
-                                } else {
-                                    updateCartAdapter(result.getItems());
-                                    updateOrderSummary(result.getTotalPrice());
+                                CartStore.getInstance().finishLocalEdit(edit);
+                                if (isAdded()) {
+                                    Toast.makeText(requireContext(), "Item removed from cart", Toast.LENGTH_SHORT).show();
                                 }
-
-                                // Update cart badge
-                                updateCartBadge();
                             }
 
                             @Override
                             public void onError(String message) {
-                                showLoading(false);
-                                Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+                                CartStore.getInstance().finishLocalEdit(edit);
+                                if (isAdded()) {
+                                    Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+                                }
                                 Log.e(TAG, "Error removing item: " + message);
                             }
                         });
@@ -216,26 +259,10 @@ public class CartFragment extends Fragment implements CartAdapter.CartItemListen
     @Override
     public void onUpdateQuantity(CartItemResponseWrapper item, int newQuantity) {
         if (item.getCartItemId() != null) {
-            showLoading(true);
-
-            cartRepository.updateCartItem(item.getCartItemId(), newQuantity, new CartRepository.CartCallback<CartResponse>() {
-                @Override
-                public void onSuccess(CartResponse result) {
-                    showLoading(false);
-                    updateCartAdapter(result.getItems());
-                    updateOrderSummary(result.getTotalPrice());
-
-                    // Update cart badge
-                    updateCartBadge();
-                }
-
-                @Override
-                public void onError(String message) {
-                    showLoading(false);
-                    Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Error updating quantity: " + message);
-                }
-            });
+            // Show the new quantity and totals right away, the server answer confirms or rolls it back
+            quantityEdits.put(item.getCartItemId(),
+                    CartStore.getInstance().applyLocalEdit(item.getCartItemId(), newQuantity));
+            quantityUpdates.setQuantity(item.getCartItemId(), newQuantity);
         }
     }
 
@@ -249,6 +276,10 @@ public class CartFragment extends Fragment implements CartAdapter.CartItemListen
             this.response = response;
         }
 
+        public CartItemResponse getResponse() {
+            return response;
+        }
+
         public Long getCartItemId() {
             return response.getCartItemId();
         }
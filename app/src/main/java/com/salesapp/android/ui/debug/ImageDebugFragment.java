@@ -0,0 +1,149 @@
+package com.salesapp.android.ui.debug;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.format.DateUtils;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.salesapp.android.R;
+import com.salesapp.android.image.ImageCachePolicy;
+import com.salesapp.android.image.ImageLoadStats;
+import com.salesapp.android.service.ImagePrefetchScheduler;
+import com.salesapp.android.service.ImagePrefetchWorker;
+
+import java.util.List;
+
+/**
+ * Shows how product images are cached: background prefetch progress and hit rate, image load
+ * totals and time to first pixel for this process, and the memory policy, which can be
+ * switched here. The image metrics can be exported as JSON.
+ */
+public class ImageDebugFragment extends Fragment {
+    private TextView textViewPrefetchState;
+    private TextView textViewPrefetchStats;
+    private TextView textViewImageStats;
+    private TextView textViewFirstPixel;
+    private RadioGroup radioGroupCachePolicy;
+
+    // Latest state of the scheduled and the run-now prefetch
+    private String scheduledState = "not scheduled";
+    private String runNowState = "not started";
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_image_debug, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        textViewPrefetchState = view.findViewById(R.id.textViewPrefetchState);
+        textViewPrefetchStats = view.findViewById(R.id.textViewPrefetchStats);
+        textViewImageStats = view.findViewById(R.id.textViewImageStats);
+        textViewFirstPixel = view.findViewById(R.id.textViewFirstPixel);
+        radioGroupCachePolicy = view.findViewById(R.id.radioGroupCachePolicy);
+        Button buttonPrefetchNow = view.findViewById(R.id.buttonPrefetchNow);
+        Button buttonRefresh = view.findViewById(R.id.buttonRefresh);
+        Button buttonExportMetrics = view.findViewById(R.id.buttonExportMetrics);
+
+        // Follow both prefetch jobs; a running one reports its progress
+        WorkManager workManager = WorkManager.getInstance(requireContext());
+        workManager.getWorkInfosForUniqueWorkLiveData(ImagePrefetchScheduler.WORK_NAME)
+                .observe(getViewLifecycleOwner(), workInfos -> {
+                    scheduledState = describe(workInfos, "not scheduled");
+                    showPrefetchState();
+                });
+        workManager.getWorkInfosForUniqueWorkLiveData(ImagePrefetchScheduler.RUN_NOW_WORK_NAME)
+                .observe(getViewLifecycleOwner(), workInfos -> {
+                    runNowState = describe(workInfos, "not started");
+                    showPrefetchState();
+                });
+
+        buttonPrefetchNow.setOnClickListener(v -> {
+            ImagePrefetchScheduler.runNow(requireContext());
+            Toast.makeText(requireContext(), "Prefetch starts on an unmetered network", Toast.LENGTH_SHORT).show();
+        });
+
+        radioGroupCachePolicy.check(ImageCachePolicy.getMode() == ImageCachePolicy.Mode.COMPACT
+                ? R.id.radioButtonCompact : R.id.radioButtonStandard);
+        radioGroupCachePolicy.setOnCheckedChangeListener((group, checkedId) -> {
+            ImageCachePolicy.setMode(requireContext(), checkedId == R.id.radioButtonCompact
+                    ? ImageCachePolicy.Mode.COMPACT : ImageCachePolicy.Mode.STANDARD);
+            refreshStats();
+        });
+
+        buttonRefresh.setOnClickListener(v -> refreshStats());
+        buttonExportMetrics.setOnClickListener(v -> exportMetrics());
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        refreshStats();
+    }
+
+    private void refreshStats() {
+        ImagePrefetchScheduler.PassStats stats = ImagePrefetchScheduler.getStats(requireContext());
+        StringBuilder text = new StringBuilder()
+                .append("Current pass: ").append(stats)
+                .append("\nResumes after product ").append(stats.cursor);
+        if (stats.lastOutcome != null) {
+            text.append("\nLast pass ")
+                    .append(DateUtils.getRelativeTimeSpanString(stats.lastFinishedAt))
+                    .append(": ").append(stats.lastOutcome);
+        }
+        textViewPrefetchStats.setText(text);
+
+        textViewImageStats.setText("Since app start: " + ImageLoadStats.getInstance().snapshot());
+        textViewFirstPixel.setText(ImageLoadStats.getInstance().describeFirstPixel());
+        ImageCachePolicy.logMemory("Image diagnostics");
+    }
+
+    /**
+     * Share the image metrics, e.g. to attach them to a build's test results
+     */
+    private void exportMetrics() {
+        String json = ImageLoadStats.getInstance().exportJson();
+        Log.d("ImageDebugFragment", "Image metrics: " + json);
+
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_SUBJECT, "SalesApp image metrics");
+        intent.putExtra(Intent.EXTRA_TEXT, json);
+        startActivity(Intent.createChooser(intent, "Export image metrics"));
+    }
+
+    private void showPrefetchState() {
+        textViewPrefetchState.setText("Scheduled: " + scheduledState + "\nRun now: " + runNowState);
+        refreshStats();
+    }
+
+    private static String describe(List<WorkInfo> workInfos, String none) {
+        if (workInfos == null || workInfos.isEmpty()) {
+            return none;
+        }
+        WorkInfo workInfo = workInfos.get(workInfos.size() - 1);
+        String state = workInfo.getState().name().toLowerCase();
+        if (workInfo.getState() == WorkInfo.State.RUNNING) {
+            int done = workInfo.getProgress().getInt(ImagePrefetchWorker.KEY_DONE, 0);
+            int total = workInfo.getProgress().getInt(ImagePrefetchWorker.KEY_TOTAL, 0);
+            state += " (" + done + " of " + total + " products)";
+        }
+        return state;
+    }
+}
@@ -0,0 +1,44 @@
+package com.salesapp.android.ui.product;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Requests the next page while the user is still a few items away from the end of the list.
+ * Works with {@link androidx.recyclerview.widget.GridLayoutManager}, which extends LinearLayoutManager.
+ */
+public abstract class PaginationScrollListener extends RecyclerView.OnScrollListener {
+    private final LinearLayoutManager layoutManager;
+    private final int prefetchDistance;
+
+    public PaginationScrollListener(LinearLayoutManager layoutManager, int prefetchDistance) {
+        this.layoutManager = layoutManager;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        // Also called with dy == 0 after a layout pass, which keeps loading while the list
+        // is too short to fill the screen
+        if (dy < 0 || !hasMorePages()) {
+            return;
+        }
+
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible + prefetchDistance >= layoutManager.getItemCount()) {
+            loadMore();
+        }
+    }
+
+    /**
+     * Whether there are pages left to load
+     */
+    protected abstract boolean hasMorePages();
+
+    /**
+     * Load the next page. Called repeatedly while the end is in range, so implementations
+     * must ignore calls while a page is already loading.
+     */
+    protected abstract void loadMore();
+}
@@ -0,0 +1,64 @@
+package com.salesapp.android.ui.product;
+
+import android.view.Choreographer;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Counts the frames drawn while the product grid scrolls, and how many of them showed at
+ * least one row still waiting for its image. Started when a scroll starts and read when the
+ * grid comes to rest.
+ */
+public class PlaceholderFrameCounter implements Choreographer.FrameCallback {
+    private final RecyclerView recyclerView;
+    private boolean running;
+    private int frames;
+    private int placeholderFrames;
+
+    public PlaceholderFrameCounter(RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+    }
+
+    /**
+     * Start counting from zero, unless already counting
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        frames = 0;
+        placeholderFrames = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        frames++;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            if (holder instanceof ProductAdapter.ProductViewHolder
+                    && ((ProductAdapter.ProductViewHolder) holder).isShowingPlaceholder()) {
+                placeholderFrames++;
+                break;
+            }
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public int getPlaceholderFrames() {
+        return placeholderFrames;
+    }
+}
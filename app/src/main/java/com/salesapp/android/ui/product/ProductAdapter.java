@@ -2,6 +2,7 @@ package com.salesapp.android.ui.product;
 
 import android.content.Context;
 import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,27 +13,65 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.DiffUtil;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.resource.bitmap.CenterCrop;
 import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
+import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.google.android.material.card.MaterialCardView;
 import com.salesapp.android.R;
 import com.salesapp.android.data.model.Product;
+import com.salesapp.android.image.ImageCachePolicy;
+import com.salesapp.android.image.ProductImage;
+import com.salesapp.android.image.ProductImages;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Product grid adapter. New lists are diffed on a background thread and only rows whose
+ * product changed are rebound; rows keep their product ID as a stable ID.
+ *
+ * A changed row is updated through the diff's change payload: a price edit only sets the
+ * price text, and the image is only reloaded when its URL changed. A product animates in the
+ * first time it is shown, not again when filtering or scrolling brings it back.
+ *
+ * The adapter also provides the image requests for a scroll preloader, built exactly as a
+ * row builds them and sized from the first row's image view, so preloaded images are memory
+ * cache hits when their rows are bound.
+ */
+public class ProductAdapter extends ListAdapter<Product, ProductAdapter.ProductViewHolder>
+        implements ListPreloader.PreloadModelProvider<Product> {
+    private static final RequestOptions IMAGE_OPTIONS = new RequestOptions()
+            .transforms(new CenterCrop(), new RoundedCorners(16))
+            .placeholder(R.drawable.ic_launcher_background)
+            .error(R.drawable.ic_launcher_background);
+    // Rounding corners needs an alpha channel, so the compact mode leaves it to the card's
+    // clipping and keeps RGB_565 bitmaps
+    private static final RequestOptions COMPACT_IMAGE_OPTIONS = new RequestOptions()
+            .centerCrop()
+            .placeholder(R.drawable.ic_launcher_background)
+            .error(R.drawable.ic_launcher_background);
 
-public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
-    private List<Product> products = new ArrayList<>();
     private final Context context;
     private final OnProductClickListener listener;
-    private int lastPosition = -1;
+    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
+    private final Set<Long> animatedIds = new HashSet<>();
+    private final ViewPreloadSizeProvider<Product> preloadSizeProvider = new ViewPreloadSizeProvider<>();
 
     public interface OnProductClickListener {
         void onProductClick(Product product);
@@ -40,8 +79,10 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
     }
 
     public ProductAdapter(Context context, OnProductClickListener listener) {
+        super(new ProductDiffCallback());
         this.context = context;
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -49,51 +90,74 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
     public ProductViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_product_enhanced, parent, false);
-        return new ProductViewHolder(view);
+        ProductViewHolder holder = new ProductViewHolder(view);
+        preloadSizeProvider.setView(holder.imageViewProduct);
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = getItem(position);
         holder.bind(product);
 
         // Apply animation to item
-        setAnimation(holder.itemView, position);
+        setAnimation(holder.itemView, product);
     }
 
     @Override
-    public int getItemCount() {
-        return products.size();
-    }
-
-    public void setProducts(List<Product> newProducts) {
-        if (newProducts == null) {
-            newProducts = new ArrayList<>();
+    public void onBindViewHolder(@NonNull ProductViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
         }
 
-        // Use DiffUtil to calculate the difference and dispatch updates
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new ProductDiffCallback(this.products, newProducts));
-
-        this.products = new ArrayList<>(newProducts);
-        diffResult.dispatchUpdatesTo(this);
-
-        // Reset last animated position
-        lastPosition = -1;
+        // Changes from several diffs may be queued for the row
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        holder.bindChanges(getItem(position), changes);
     }
 
-    private void setAnimation(View viewToAnimate, int position) {
+    private void setAnimation(View viewToAnimate, Product product) {
         // Only animate items appearing for the first time
-        if (position > lastPosition) {
+        if (animatedIds.add(product.getProductId())) {
             Animation animation = AnimationUtils.loadAnimation(context, R.anim.item_animation_from_bottom);
             viewToAnimate.startAnimation(animation);
-            lastPosition = position;
         }
     }
 
-    // Override for more efficient view recycling
+    public ViewPreloadSizeProvider<Product> getPreloadSizeProvider() {
+        return preloadSizeProvider;
+    }
+
+    @NonNull
+    @Override
+    public List<Product> getPreloadItems(int position) {
+        Product product = getItem(position);
+        if (product.getImageURL() == null || product.getImageURL().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(product);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Product product) {
+        return loadImage(product, null);
+    }
+
+    private RequestBuilder<Drawable> loadImage(Product product, @Nullable RequestListener<Drawable> listener) {
+        RequestOptions options = ImageCachePolicy.getMode() == ImageCachePolicy.Mode.COMPACT
+                ? COMPACT_IMAGE_OPTIONS : IMAGE_OPTIONS;
+        return ProductImages.load(Glide.with(context), product.getImageURL(), product.getProductId(),
+                options, listener);
+    }
+
+    // Stable IDs let the grid keep a row's view when the row moves
     @Override
     public long getItemId(int position) {
-        return products.get(position).getProductId();
+        return getItem(position).getProductId();
     }
 
     // Clear animation when recycling views
@@ -111,6 +175,27 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         private final TextView textViewProductPrice;
         private final TextView textViewProductCategory;
         private final Button buttonAddToCart;
+        // Set from binding until the image, or the error drawable, is shown
+        private boolean showingPlaceholder;
+        private final RequestListener<Drawable> imageListener = new RequestListener<Drawable>() {
+            @Override
+            public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                        @NonNull Target<Drawable> target, boolean isFirstResource) {
+                // A failed variant is retried with the original URL
+                if (!(model instanceof ProductImage)) {
+                    showingPlaceholder = false;
+                }
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model,
+                                           Target<Drawable> target, @NonNull DataSource dataSource,
+                                           boolean isFirstResource) {
+                showingPlaceholder = false;
+                return false;
+            }
+        };
 
         public ProductViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -123,99 +208,72 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
             buttonAddToCart = itemView.findViewById(R.id.buttonAddToCart);
         }
 
+        /**
+         * Whether the row still waits for its image
+         */
+        public boolean isShowingPlaceholder() {
+            return showingPlaceholder;
+        }
+
         public void bind(Product product) {
+            bindChanges(product, ProductDiffCallback.CHANGED_NAME | ProductDiffCallback.CHANGED_DESCRIPTION
+                    | ProductDiffCallback.CHANGED_PRICE | ProductDiffCallback.CHANGED_CATEGORY
+                    | ProductDiffCallback.CHANGED_IMAGE);
+        }
+
+        /**
+         * Update the views showing the fields flagged in changes
+         */
+        public void bindChanges(Product product, int changes) {
             // Set product name
-            textViewProductName.setText(product.getProductName());
+            if ((changes & ProductDiffCallback.CHANGED_NAME) != 0) {
+                textViewProductName.setText(product.getProductName());
+            }
 
             // Set product description
-            if (product.getBriefDescription() != null && !product.getBriefDescription().isEmpty()) {
-                textViewProductDescription.setText(product.getBriefDescription());
-                textViewProductDescription.setVisibility(View.VISIBLE);
-            } else {
-                textViewProductDescription.setVisibility(View.GONE);
+            if ((changes & ProductDiffCallback.CHANGED_DESCRIPTION) != 0) {
+                if (product.getBriefDescription() != null && !product.getBriefDescription().isEmpty()) {
+                    textViewProductDescription.setText(product.getBriefDescription());
+                    textViewProductDescription.setVisibility(View.VISIBLE);
+                } else {
+                    textViewProductDescription.setVisibility(View.GONE);
+                }
             }
 
             // Format price with currency
-            NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
-            textViewProductPrice.setText(currencyFormat.format(product.getPrice()));
+            if ((changes & ProductDiffCallback.CHANGED_PRICE) != 0) {
+                textViewProductPrice.setText(currencyFormat.format(product.getPrice()));
+            }
 
             // Set category if available
-            if (product.getCategory() != null && product.getCategory().getCategoryName() != null) {
-                textViewProductCategory.setText(product.getCategory().getCategoryName());
-                textViewProductCategory.setVisibility(View.VISIBLE);
-            } else {
-                textViewProductCategory.setVisibility(View.GONE);
+            if ((changes & ProductDiffCallback.CHANGED_CATEGORY) != 0) {
+                if (product.getCategory() != null && product.getCategory().getCategoryName() != null) {
+                    textViewProductCategory.setText(product.getCategory().getCategoryName());
+                    textViewProductCategory.setVisibility(View.VISIBLE);
+                } else {
+                    textViewProductCategory.setVisibility(View.GONE);
+                }
             }
 
             // Load product image with rounded corners
-            RequestOptions requestOptions = new RequestOptions()
-                    .transforms(new CenterCrop(), new RoundedCorners(16));
-
-            if (product.getImageURL() != null && !product.getImageURL().isEmpty()) {
-                Glide.with(context)
-                        .load(product.getImageURL())
-                        .apply(requestOptions)
-                        .placeholder(R.drawable.ic_launcher_background)
-                        .error(R.drawable.ic_launcher_background)
-                        .into(imageViewProduct);
-            } else {
-                // Load a placeholder with the same transformations
-                Glide.with(context)
-                        .load(R.drawable.ic_launcher_background)
-                        .apply(requestOptions)
-                        .into(imageViewProduct);
+            if ((changes & ProductDiffCallback.CHANGED_IMAGE) != 0) {
+                if (product.getImageURL() != null && !product.getImageURL().isEmpty()) {
+                    // Memory cache hits are delivered within into()
+                    showingPlaceholder = true;
+                    loadImage(product, imageListener).into(imageViewProduct);
+                } else {
+                    // Load a placeholder with the same transformations
+                    showingPlaceholder = false;
+                    Glide.with(context)
+                            .load(R.drawable.ic_launcher_background)
+                            .apply(IMAGE_OPTIONS)
+                            .into(imageViewProduct);
+                }
             }
 
-            // Set click listeners
+            // Set click listeners, which must see the latest product
             cardView.setOnClickListener(v -> listener.onProductClick(product));
             buttonAddToCart.setOnClickListener(v -> listener.onAddToCartClick(product));
         }
     }
-
-    /**
-     * DiffUtil callback to calculate the difference between old and new list
-     */
-    private static class ProductDiffCallback extends DiffUtil.Callback {
-        private final List<Product> oldList;
-        private final List<Product> newList;
-
-        public ProductDiffCallback(List<Product> oldList, List<Product> newList) {
-            this.oldList = oldList;
-            this.newList = newList;
-        }
-
-        @Override
-        public int getOldListSize() {
-            return oldList.size();
-        }
-
-        @Override
-        public int getNewListSize() {
-            return newList.size();
-        }
-
-        @Override
-        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-            return oldList.get(oldItemPosition).getProductId().equals(
-                    newList.get(newItemPosition).getProductId());
-        }
-
-        @Override
-        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-            Product oldProduct = oldList.get(oldItemPosition);
-            Product newProduct = newList.get(newItemPosition);
-
-            // Compare relevant fields
-            boolean samePrice = oldProduct.getPrice() == newProduct.getPrice();
-            boolean sameName = oldProduct.getProductName().equals(newProduct.getProductName());
-            boolean sameDesc = (oldProduct.getBriefDescription() == null && newProduct.getBriefDescription() == null) ||
-                    (oldProduct.getBriefDescription() != null &&
-                            oldProduct.getBriefDescription().equals(newProduct.getBriefDescription()));
-            boolean sameImage = (oldProduct.getImageURL() == null && newProduct.getImageURL() == null) ||
-                    (oldProduct.getImageURL() != null &&
-                            oldProduct.getImageURL().equals(newProduct.getImageURL()));
-
-            return samePrice && sameName && sameDesc && sameImage;
-        }
-    }
-}
\ No newline at end of file
+}
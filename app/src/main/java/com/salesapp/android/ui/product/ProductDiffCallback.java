@@ -0,0 +1,65 @@
+package com.salesapp.android.ui.product;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.salesapp.android.data.model.Product;
+
+import java.util.Objects;
+
+/**
+ * Matches products by ID and compares the fields a product row shows, so a list update only
+ * rebinds the rows whose product changed. The change payload is a bit mask of the CHANGED_
+ * flags, so a row can update just the views showing changed fields.
+ */
+public class ProductDiffCallback extends DiffUtil.ItemCallback<Product> {
+    public static final int CHANGED_NAME = 1;
+    public static final int CHANGED_DESCRIPTION = 1 << 1;
+    public static final int CHANGED_PRICE = 1 << 2;
+    public static final int CHANGED_CATEGORY = 1 << 3;
+    public static final int CHANGED_IMAGE = 1 << 4;
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+        return Objects.equals(oldItem.getProductId(), newItem.getProductId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+        return changes(oldItem, newItem) == 0;
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull Product oldItem, @NonNull Product newItem) {
+        return changes(oldItem, newItem);
+    }
+
+    /**
+     * The CHANGED_ flags of the fields that differ
+     */
+    public static int changes(Product oldItem, Product newItem) {
+        int changes = 0;
+        if (!Objects.equals(oldItem.getProductName(), newItem.getProductName())) {
+            changes |= CHANGED_NAME;
+        }
+        if (!Objects.equals(oldItem.getBriefDescription(), newItem.getBriefDescription())) {
+            changes |= CHANGED_DESCRIPTION;
+        }
+        if (oldItem.getPrice() != newItem.getPrice()) {
+            changes |= CHANGED_PRICE;
+        }
+        if (!Objects.equals(categoryName(oldItem), categoryName(newItem))) {
+            changes |= CHANGED_CATEGORY;
+        }
+        if (!Objects.equals(oldItem.getImageURL(), newItem.getImageURL())) {
+            changes |= CHANGED_IMAGE;
+        }
+        return changes;
+    }
+
+    private static String categoryName(Product product) {
+        return product.getCategory() != null ? product.getCategory().getCategoryName() : null;
+    }
+}
@@ -1,5 +1,8 @@
 package com.salesapp.android.ui.product;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
@@ -7,26 +10,65 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import com.salesapp.android.data.callback.ProductCallback;
+import com.salesapp.android.data.callback.ProductStreamCallback;
 import com.salesapp.android.data.model.Category;
 import com.salesapp.android.data.model.Product;
 import com.salesapp.android.data.model.request.ProductRequest;
+import com.salesapp.android.data.repository.ProductPagingSource;
+import com.salesapp.android.data.search.Facets;
+import com.salesapp.android.data.search.FilterCriteria;
+import com.salesapp.android.data.search.ProductFilterEngine;
+import com.salesapp.android.data.search.SearchQueryPipeline;
 import com.salesapp.android.data.service.ProductService;
+import com.salesapp.android.utils.Constants;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
 
 /**
  * ViewModel for managing product-related UI state
  */
 public class ProductViewModel extends ViewModel {
     private final ProductService productService;
+    private final ProductPagingSource pagingSource;
 
     // LiveData for Products
     private final MutableLiveData<List<Product>> products = new MutableLiveData<>(new ArrayList<>());
     private final MutableLiveData<List<Product>> filteredProducts = new MutableLiveData<>(new ArrayList<>());
     private final MutableLiveData<Product> selectedProduct = new MutableLiveData<>();
 
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Search and price index of the products list, kept in step with every change to it.
+    // Filtering runs on the engine's thread and only the newest result is posted.
+    private final ProductFilterEngine filterEngine = new ProductFilterEngine(
+            Executors.newSingleThreadExecutor(), new ProductFilterEngine.Listener() {
+        @Override
+        public void onFiltered(FilterCriteria criteria, List<Product> result) {
+            filteredProducts.postValue(result);
+        }
+
+        @Override
+        public void onPriceRangeChanged(double lowestPrice, double highestPrice) {
+            mainHandler.post(() -> updatePriceRange(lowestPrice, highestPrice));
+        }
+
+        @Override
+        public void onFacetsCounted(String query, Facets result) {
+            facets.postValue(result);
+        }
+    });
+
     // LiveData for Categories
     private final MutableLiveData<List<Category>> categories = new MutableLiveData<>(new ArrayList<>());
     private final MutableLiveData<Category> selectedCategory = new MutableLiveData<>();
@@ -35,6 +77,9 @@ public class ProductViewModel extends ViewModel {
     private final MutableLiveData<Double> minimumProductPrice = new MutableLiveData<>(0.0);
     private final MutableLiveData<Double> maximumProductPrice = new MutableLiveData<>(100000.0);
 
+    // Category counts and price histogram of the current search, for the filter dialog
+    private final MutableLiveData<Facets> facets = new MutableLiveData<>();
+
     // LiveData for UI state
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
@@ -46,13 +91,60 @@ public class ProductViewModel extends ViewModel {
     private double maxPrice = 100000.0; // Default high value to ensure products aren't filtered out
 
     // Sort state
-    private boolean sortAscending = true;
+    private FilterCriteria.SortOrder sortOrder = FilterCriteria.SortOrder.RELEVANCE;
+
+    // Set once the network catalog has arrived, so a late cache read cannot overwrite it
+    private boolean freshProductsLoaded = false;
+    private boolean freshCategoriesLoaded = false;
+
+    // Full catalog download started by refreshCatalog
+    private Call<ResponseBody> catalogStream;
+    private int streamGeneration = 0;
+
+    // Streamed chunks waiting to be merged; merging copies the whole list, so it is throttled
+    private final List<Product> pendingStreamed = new ArrayList<>();
+    private boolean streamMergeScheduled = false;
+    private final Runnable mergeStreamedTask = this::mergeStreamed;
+
+    // Debounces the search box and searches the server while the catalog is partly loaded
+    private final SearchQueryPipeline searchPipeline;
 
     /**
      * Constructor with dependency injection
      */
-    public ProductViewModel(String token) {
-        this.productService = new ProductService(token);
+    public ProductViewModel(Context context, String token) {
+        this.productService = new ProductService(context.getApplicationContext(), token);
+        this.pagingSource = productService.newPagingSource();
+        this.searchPipeline = new SearchQueryPipeline(new SearchQueryPipeline.Timer() {
+            @Override
+            public void postDelayed(Runnable task, long delayMillis) {
+                mainHandler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable task) {
+                mainHandler.removeCallbacks(task);
+            }
+        }, Constants.SEARCH_DEBOUNCE_MS, Constants.REMOTE_SEARCH_MIN_LENGTH,
+                productService::searchProducts, pagingSource::hasMore, new SearchQueryPipeline.Listener() {
+            @Override
+            public void onQuery(String query) {
+                searchQuery = query;
+                applyFilters();
+            }
+
+            @Override
+            public void onRemoteResults(String query, List<Product> result) {
+                Log.d("ProductViewModel", "Server search for '" + query + "' returned " + result.size() + " products");
+                mergeProducts(result, null);
+            }
+
+            @Override
+            public void onRemoteError(String query, String message) {
+                // The local matches are already shown
+                Log.e("ProductViewModel", "Server search for '" + query + "' failed: " + message);
+            }
+        });
 
         // Log the initial filter state
         Log.d("ProductViewModel", "Initializing with filters - query: '" + searchQuery +
@@ -98,6 +190,10 @@ public class ProductViewModel extends ViewModel {
         return maximumProductPrice;
     }
 
+    public LiveData<Facets> getFacets() {
+        return facets;
+    }
+
     // Get current min/max filter prices
     public double getMinPrice() {
         return minPrice;
@@ -108,65 +204,235 @@ public class ProductViewModel extends ViewModel {
     }
 
     /**
-     * Load all products from API
+     * Load the product catalog from its first page. On a first load the persisted catalog
+     * is shown immediately, and pages from the API are merged into it as they arrive
+     * (stale-while-revalidate).
      */
     public void loadProducts() {
+        cancelCatalogStream();
         isLoading.setValue(true);
 
-        productService.getAllProducts(new ProductCallback<List<Product>>() {
+        List<Product> currentProducts = products.getValue();
+        if (currentProducts == null || currentProducts.isEmpty()) {
+            loadCachedProducts();
+        }
+
+        pagingSource.reset();
+        loadNextPage();
+    }
+
+    /**
+     * Load the next page of the catalog. Ignored while a page is loading or after the last page.
+     */
+    public void loadNextPage() {
+        if (catalogStream != null || pagingSource.isLoading() || !pagingSource.hasMore()) {
+            return;
+        }
+
+        pagingSource.loadNextPage(new ProductCallback<List<Product>>() {
             @Override
             public void onSuccess(List<Product> result) {
-                Log.d("ProductViewModel", "loadProducts success: received " + result.size() + " products");
+                Log.d("ProductViewModel", "loadNextPage success: received " + result.size() + " products");
+                freshProductsLoaded = true;
 
-                // Update products
-                products.setValue(result);
+                mergeProducts(result, pagingSource.hasMore() ? null : pagingSource::hasSeen);
+                isLoading.setValue(false);
+            }
 
-                // Calculate price range from received products
-                updatePriceRangeFromProducts(result);
+            @Override
+            public void onError(String message) {
+                Log.e("ProductViewModel", "loadNextPage error: " + message);
+                errorMessage.setValue(message);
+                isLoading.setValue(false);
+            }
+        });
+    }
 
-                // Apply filters with the updated price range
-                applyFilters();
+    /**
+     * Re-download the whole catalog as a stream. Products already shown stay visible and are
+     * updated chunk by chunk as they are decoded; products the server no longer returns are
+     * dropped once the last chunk has arrived.
+     */
+    public void refreshCatalog() {
+        cancelCatalogStream();
+        pagingSource.reset();
+        isLoading.setValue(true);
+
+        final int generation = streamGeneration;
+        Set<Long> streamedIds = new HashSet<>();
+
+        catalogStream = productService.streamAllProducts(new ProductStreamCallback() {
+            @Override
+            public void onChunk(List<Product> chunk) {
+                if (generation != streamGeneration) {
+                    return;
+                }
+                for (Product product : chunk) {
+                    streamedIds.add(product.getProductId());
+                }
+                freshProductsLoaded = true;
+
+                // The first chunk is shown right away, later ones at most once per interval
+                pendingStreamed.addAll(chunk);
+                if (!streamMergeScheduled) {
+                    mergeStreamed();
+                }
+                isLoading.setValue(false);
+            }
 
+            @Override
+            public void onComplete(int total) {
+                if (generation != streamGeneration) {
+                    return;
+                }
+                Log.d("ProductViewModel", "refreshCatalog complete: received " + total + " products");
+                catalogStream = null;
+                pagingSource.markComplete(streamedIds);
+
+                stopMergingStreamed();
+                mergeProducts(takePendingStreamed(), streamedIds::contains);
                 isLoading.setValue(false);
             }
 
             @Override
             public void onError(String message) {
-                Log.e("ProductViewModel", "loadProducts error: " + message);
+                if (generation != streamGeneration) {
+                    return;
+                }
+                Log.e("ProductViewModel", "refreshCatalog error: " + message);
+                catalogStream = null;
+                // Products decoded before the error are still valid
+                stopMergingStreamed();
+                if (!pendingStreamed.isEmpty()) {
+                    mergeProducts(takePendingStreamed(), null);
+                }
                 errorMessage.setValue(message);
                 isLoading.setValue(false);
             }
         });
     }
 
+    private void cancelCatalogStream() {
+        streamGeneration++;
+        stopMergingStreamed();
+        pendingStreamed.clear();
+        if (catalogStream != null) {
+            catalogStream.cancel();
+            catalogStream = null;
+        }
+    }
+
     /**
-     * Calculate and update price range based on available products
+     * Merge the streamed chunks received so far and hold back further chunks for one interval
      */
-    private void updatePriceRangeFromProducts(List<Product> productList) {
-        if (productList == null || productList.isEmpty()) {
-            // Default values if no products
-            minimumProductPrice.setValue(0.0);
-            maximumProductPrice.setValue(100000.0);
+    private void mergeStreamed() {
+        if (pendingStreamed.isEmpty()) {
+            streamMergeScheduled = false;
             return;
         }
+        mergeProducts(takePendingStreamed(), null);
+        streamMergeScheduled = true;
+        mainHandler.postDelayed(mergeStreamedTask, Constants.STREAM_MERGE_INTERVAL_MS);
+    }
+
+    private void stopMergingStreamed() {
+        mainHandler.removeCallbacks(mergeStreamedTask);
+        streamMergeScheduled = false;
+    }
+
+    private List<Product> takePendingStreamed() {
+        List<Product> pending = new ArrayList<>(pendingStreamed);
+        pendingStreamed.clear();
+        return pending;
+    }
+
+    /**
+     * True while the catalog has pages that have not been loaded yet
+     */
+    public boolean hasMoreProducts() {
+        return pagingSource.hasMore();
+    }
+
+    /**
+     * Merge products into the product list, replacing products already shown and appending
+     * new ones. If keep is given, products it rejects are dropped afterwards.
+     */
+    private void mergeProducts(List<Product> incoming, Predicate<Long> keep) {
+        List<Product> currentProducts = products.getValue();
+        List<Product> merged = currentProducts != null ? new ArrayList<>(currentProducts) : new ArrayList<>();
+
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < merged.size(); i++) {
+            positions.put(merged.get(i).getProductId(), i);
+        }
+
+        for (Product product : incoming) {
+            Integer position = positions.get(product.getProductId());
+            if (position != null) {
+                merged.set(position, product);
+            } else {
+                positions.put(product.getProductId(), merged.size());
+                merged.add(product);
+            }
+            filterEngine.put(product);
+        }
 
-        // Find minimum and maximum prices
-        double minProductPrice = Double.MAX_VALUE;
-        double maxProductPrice = 0.0;
+        if (keep != null) {
+            merged.removeIf(product -> {
+                if (keep.test(product.getProductId())) {
+                    return false;
+                }
+                filterEngine.remove(product.getProductId());
+                return true;
+            });
+        }
+
+        products.setValue(merged);
+        applyFilters();
+    }
 
-        for (Product product : productList) {
-            double price = product.getPrice();
-            if (price < minProductPrice) {
-                minProductPrice = price;
+    /**
+     * Show the persisted catalog while the API request is in flight
+     */
+    private void loadCachedProducts() {
+        productService.getCachedProducts(new ProductCallback<List<Product>>() {
+            @Override
+            public void onSuccess(List<Product> result) {
+                if (freshProductsLoaded || result.isEmpty()) {
+                    return;
+                }
+                Log.d("ProductViewModel", "Showing " + result.size() + " cached products");
+
+                products.setValue(result);
+                filterEngine.setAll(result);
+                applyFilters();
+
+                // The grid is populated; revalidation continues in the background
+                isLoading.setValue(false);
             }
-            if (price > maxProductPrice) {
-                maxProductPrice = price;
+
+            @Override
+            public void onError(String message) {
+                Log.e("ProductViewModel", "Cached products unavailable: " + message);
             }
+        });
+    }
+
+    /**
+     * Update the price range from the lowest and highest catalog prices, as reported by the
+     * filter engine's price index whenever they change
+     */
+    private void updatePriceRange(double lowestPrice, double highestPrice) {
+        if (Double.isNaN(lowestPrice)) {
+            // Default values if no products
+            minimumProductPrice.setValue(0.0);
+            maximumProductPrice.setValue(100000.0);
+            return;
         }
 
         // Add buffer and round nicely
-        minProductPrice = Math.max(0, Math.floor(minProductPrice * 0.9)); // 10% lower and rounded down
-        maxProductPrice = Math.ceil(maxProductPrice * 1.1); // 10% higher and rounded up
+        double minProductPrice = Math.max(0, Math.floor(lowestPrice * 0.9)); // 10% lower and rounded down
+        double maxProductPrice = Math.ceil(highestPrice * 1.1); // 10% higher and rounded up
 
         Log.d("ProductViewModel", "Calculated price range: " + minProductPrice + " - " + maxProductPrice);
 
@@ -177,6 +443,7 @@ public class ProductViewModel extends ViewModel {
         // Also update current filter max price if needed
         if (this.maxPrice < maxProductPrice) {
             this.maxPrice = maxProductPrice;
+            applyFilters();
         }
     }
 
@@ -211,7 +478,7 @@ public class ProductViewModel extends ViewModel {
             @Override
             public void onSuccess(List<Product> result) {
                 products.setValue(result);
-                updatePriceRangeFromProducts(result);
+                filterEngine.setAll(result);
                 applyFilters();
                 isLoading.setValue(false);
             }
@@ -225,26 +492,18 @@ public class ProductViewModel extends ViewModel {
     }
 
     /**
-     * Search products by name
+     * The search box text changed. The query is applied once typing pauses.
      */
-    public void searchProducts(String query) {
-        isLoading.setValue(true);
-
-        productService.searchProducts(query, new ProductCallback<List<Product>>() {
-            @Override
-            public void onSuccess(List<Product> result) {
-                products.setValue(result);
-                updatePriceRangeFromProducts(result);
-                applyFilters();
-                isLoading.setValue(false);
-            }
+    public void onSearchQueryChanged(String text) {
+        searchPipeline.onQueryChanged(text);
+    }
 
-            @Override
-            public void onError(String message) {
-                errorMessage.setValue(message);
-                isLoading.setValue(false);
-            }
-        });
+    /**
+     * Search products by name now. Matches from the local catalog are shown first; the
+     * server is searched as well while the catalog is only partly loaded.
+     */
+    public void searchProducts(String query) {
+        searchPipeline.submit(query);
     }
 
     /**
@@ -256,12 +515,13 @@ public class ProductViewModel extends ViewModel {
         productService.createProduct(productRequest, new ProductCallback<Product>() {
             @Override
             public void onSuccess(Product result) {
-                // Add new product to the list
+                // Add new product to a new list, so list adapters see the change
                 List<Product> currentProducts = products.getValue();
                 if (currentProducts != null) {
-                    currentProducts.add(result);
-                    products.setValue(currentProducts);
-                    updatePriceRangeFromProducts(currentProducts);
+                    List<Product> updated = new ArrayList<>(currentProducts);
+                    updated.add(result);
+                    filterEngine.put(result);
+                    products.setValue(updated);
                     applyFilters();
                 }
                 isLoading.setValue(false);
@@ -284,17 +544,18 @@ public class ProductViewModel extends ViewModel {
         productService.updateProduct(productId, productRequest, new ProductCallback<Product>() {
             @Override
             public void onSuccess(Product result) {
-                // Update product in the list
+                // Update product in a new list, so list adapters see the change
                 List<Product> currentProducts = products.getValue();
                 if (currentProducts != null) {
-                    for (int i = 0; i < currentProducts.size(); i++) {
-                        if (currentProducts.get(i).getProductId().equals(result.getProductId())) {
-                            currentProducts.set(i, result);
+                    List<Product> updated = new ArrayList<>(currentProducts);
+                    for (int i = 0; i < updated.size(); i++) {
+                        if (updated.get(i).getProductId().equals(result.getProductId())) {
+                            updated.set(i, result);
                             break;
                         }
                     }
-                    products.setValue(currentProducts);
-                    updatePriceRangeFromProducts(currentProducts);
+                    filterEngine.put(result);
+                    products.setValue(updated);
                     applyFilters();
                 }
                 isLoading.setValue(false);
@@ -317,12 +578,13 @@ public class ProductViewModel extends ViewModel {
         productService.deleteProduct(productId, new ProductCallback<String>() {
             @Override
             public void onSuccess(String result) {
-                // Remove product from the list
+                // Remove product from a new list, so list adapters see the change
                 List<Product> currentProducts = products.getValue();
                 if (currentProducts != null) {
-                    currentProducts.removeIf(product -> product.getProductId() == productId);
-                    products.setValue(currentProducts);
-                    updatePriceRangeFromProducts(currentProducts);
+                    List<Product> updated = new ArrayList<>(currentProducts);
+                    updated.removeIf(product -> product.getProductId() == productId);
+                    filterEngine.remove(productId);
+                    products.setValue(updated);
                     applyFilters();
                 }
                 isLoading.setValue(false);
@@ -342,9 +604,27 @@ public class ProductViewModel extends ViewModel {
     public void loadCategories() {
         isLoading.setValue(true);
 
+        List<Category> currentCategories = categories.getValue();
+        if (currentCategories == null || currentCategories.isEmpty()) {
+            productService.getCachedCategories(new ProductCallback<List<Category>>() {
+                @Override
+                public void onSuccess(List<Category> result) {
+                    if (!freshCategoriesLoaded && !result.isEmpty()) {
+                        categories.setValue(result);
+                    }
+                }
+
+                @Override
+                public void onError(String message) {
+                    Log.e("ProductViewModel", "Cached categories unavailable: " + message);
+                }
+            });
+        }
+
         productService.getAllCategories(new ProductCallback<List<Category>>() {
             @Override
             public void onSuccess(List<Category> result) {
+                freshCategoriesLoaded = true;
                 categories.setValue(result);
                 isLoading.setValue(false);
             }
@@ -358,46 +638,48 @@ public class ProductViewModel extends ViewModel {
     }
 
     /**
-     * Apply filters to the product list
+     * Apply filters to the product list. The result is filtered and sorted in the background;
+     * a result superseded by a newer call is never posted.
      */
     public void applyFilters() {
-        List<Product> currentProducts = products.getValue();
-        if (currentProducts == null) {
+        if (products.getValue() == null) {
             return;
         }
 
-        // Log filter parameters
-        Log.d("ProductViewModel", "Applying filters - query: '" + searchQuery +
-                "', categoryId: " + categoryId +
-                ", price range: " + minPrice + "-" + maxPrice);
-
-        // Apply filters
-        List<Product> filtered = productService.filterProducts(
-                currentProducts, searchQuery, categoryId, minPrice, maxPrice);
-
-        // Apply sorting
-        filtered = productService.sortProductsByPrice(filtered, sortAscending);
+        FilterCriteria criteria = new FilterCriteria(searchQuery, categoryId, minPrice, maxPrice, sortOrder);
+        Log.d("ProductViewModel", "Applying filters - " + criteria);
+        filterEngine.filter(criteria);
+    }
 
-        // Update filtered products
-        filteredProducts.setValue(filtered);
+    /**
+     * Count the facets of the current search query over the current price range. The result
+     * is posted to {@link #getFacets()}; until then it is null.
+     */
+    public void loadFacets() {
+        facets.setValue(null);
+        Double lowest = minimumProductPrice.getValue();
+        Double highest = maximumProductPrice.getValue();
+        filterEngine.countFacets(searchQuery, lowest != null ? lowest : 0, highest != null ? highest : 100000.0);
     }
 
     /**
-     * Set filter criteria
+     * Set filter criteria. The category and price range apply at once. The search text goes
+     * through the search pipeline like any edit of the search box, so it is debounced, and a
+     * newer query cancels the server search of an older one.
      */
     public void setFilters(String searchQuery, Long categoryId, double minPrice, double maxPrice) {
-        this.searchQuery = searchQuery;
         this.categoryId = categoryId;
         this.minPrice = minPrice;
         this.maxPrice = maxPrice;
         applyFilters();
+        searchPipeline.onQueryChanged(searchQuery);
     }
 
     /**
      * Set sort order
      */
-    public void setSortOrder(boolean ascending) {
-        this.sortAscending = ascending;
+    public void setSortOrder(FilterCriteria.SortOrder sortOrder) {
+        this.sortOrder = sortOrder;
         applyFilters();
     }
 
@@ -445,4 +727,12 @@ public class ProductViewModel extends ViewModel {
     public void clearError() {
         errorMessage.setValue(null);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        cancelCatalogStream();
+        searchPipeline.cancel();
+        filterEngine.shutdown();
+    }
+}
@@ -16,8 +16,10 @@ import android.view.ViewGroup;
 import android.view.Window;
 import android.view.animation.AnimationUtils;
 import android.view.animation.LayoutAnimationController;
+import android.view.inputmethod.EditorInfo;
 import android.widget.Button;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
@@ -26,7 +28,9 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -34,7 +38,8 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.airbnb.lottie.LottieAnimationView;
 import com.bumptech.glide.Glide;
-import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.request.RequestOptions;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
@@ -50,9 +55,13 @@ import com.salesapp.android.data.model.Product;
 import com.salesapp.android.data.model.response.CartResponse;
 import com.salesapp.android.data.preference.PreferenceManager;
 import com.salesapp.android.data.repository.CartRepository;
+import com.salesapp.android.data.search.Facets;
+import com.salesapp.android.data.search.FilterCriteria;
 import com.salesapp.android.data.service.ProductService;
+import com.salesapp.android.image.ImageLoadStats;
+import com.salesapp.android.image.ProductImages;
 import com.salesapp.android.ui.cart.CartFragment;
-import com.salesapp.android.utils.BadgeUtils;
+import com.salesapp.android.utils.Constants;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -81,7 +90,11 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
     private double minPrice = 0;
     private double maxPrice = 100000.0;
     private String searchQuery = "";
-    private boolean isAscendingSort = true;
+    private FilterCriteria.SortOrder sortOrder = FilterCriteria.SortOrder.RELEVANCE;
+
+    // Image traffic totals when the grid last came to rest
+    private ImageLoadStats.Snapshot scrollImageStats;
+    private PlaceholderFrameCounter placeholderFrameCounter;
 
     @Nullable
     @Override
@@ -114,7 +127,7 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
         cartRepository = new CartRepository(preferenceManager.getToken());
 
         // Initialize ViewModel
-        viewModel = new ProductViewModel(preferenceManager.getToken());
+        viewModel = new ProductViewModel(requireContext(), preferenceManager.getToken());
 
         setupRecyclerView();
         setupSwipeRefresh();
@@ -133,7 +146,7 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
         productAdapter = new ProductAdapter(requireContext(), this);
 
         // Setup layout manager
-        GridLayoutManager layoutManager = new GridLayoutManager(requireContext(), 2);
+        GridLayoutManager layoutManager = new GridLayoutManager(requireContext(), Constants.PRODUCT_GRID_SPAN_COUNT);
         recyclerViewProducts.setLayoutManager(layoutManager);
 
         // Add animation
@@ -143,6 +156,46 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
 
         // Set adapter
         recyclerViewProducts.setAdapter(productAdapter);
+
+        // Load further pages before the user reaches the end of the grid
+        recyclerViewProducts.addOnScrollListener(new PaginationScrollListener(
+                layoutManager, Constants.PAGE_PREFETCH_DISTANCE) {
+            @Override
+            protected boolean hasMorePages() {
+                return viewModel.hasMoreProducts();
+            }
+
+            @Override
+            protected void loadMore() {
+                viewModel.loadNextPage();
+            }
+        });
+
+        // Load the images of the next rows in the scroll direction
+        if (Constants.IMAGE_PRELOAD_ROWS > 0) {
+            recyclerViewProducts.addOnScrollListener(new RecyclerViewPreloader<>(
+                    Glide.with(this), productAdapter, productAdapter.getPreloadSizeProvider(),
+                    Constants.IMAGE_PRELOAD_ROWS * layoutManager.getSpanCount()));
+        }
+
+        // Report what each scroll cost in image traffic and placeholder frames
+        scrollImageStats = ImageLoadStats.getInstance().snapshot();
+        placeholderFrameCounter = new PlaceholderFrameCounter(recyclerViewProducts);
+        recyclerViewProducts.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+                    placeholderFrameCounter.start();
+                    return;
+                }
+                placeholderFrameCounter.stop();
+                ImageLoadStats.Snapshot stats = ImageLoadStats.getInstance().snapshot();
+                Log.d("ProductsFragment", "Scroll page images: " + stats.minus(scrollImageStats)
+                        + "; placeholders in " + placeholderFrameCounter.getPlaceholderFrames()
+                        + " of " + placeholderFrameCounter.getFrames() + " frames");
+                scrollImageStats = stats;
+            }
+        });
     }
 
     private void setupSwipeRefresh() {
@@ -153,7 +206,7 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
         );
 
         swipeRefreshLayout.setOnRefreshListener(() -> {
-            viewModel.loadProducts();
+            viewModel.refreshCatalog();
             viewModel.loadCategories();
         });
     }
@@ -172,17 +225,23 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 searchQuery = s.toString();
 
-                // Debounce search queries
-                new Handler().removeCallbacksAndMessages(null);
-                new Handler().postDelayed(() -> {
-                    viewModel.setFilters(searchQuery, currentCategoryId, minPrice, maxPrice);
-                }, 300);
+                // Debounced in the ViewModel, which also cancels a server search for older text
+                viewModel.onSearchQueryChanged(searchQuery);
             }
 
             @Override
             public void afterTextChanged(Editable s) {
             }
         });
+
+        // The search key runs the query without waiting for the debounce delay
+        editTextSearch.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId == EditorInfo.IME_ACTION_SEARCH) {
+                viewModel.searchProducts(searchQuery);
+                return true;
+            }
+            return false;
+        });
     }
 
     private void setupFilterButton() {
@@ -215,7 +274,14 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
                 }
             }
 
-            productAdapter.setProducts(products);
+            boolean wasEmpty = productAdapter.getItemCount() == 0;
+            // Diffed in the background; the grid changes once the diff is applied
+            productAdapter.submitList(products, () -> {
+                // Run layout animation only when the grid fills from empty, not on every appended page
+                if (wasEmpty && productAdapter.getItemCount() > 0) {
+                    recyclerViewProducts.scheduleLayoutAnimation();
+                }
+            });
 
             // Update result count
             updateResultCount(products.size());
@@ -227,9 +293,6 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
             } else {
                 textViewEmpty.setVisibility(View.GONE);
                 recyclerViewProducts.setVisibility(View.VISIBLE);
-
-                // Run layout animation
-                recyclerViewProducts.scheduleLayoutAnimation();
             }
         });
 
@@ -345,6 +408,9 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
         TextView textViewMinPrice = dialog.findViewById(R.id.textViewMinPrice);
         TextView textViewMaxPrice = dialog.findViewById(R.id.textViewMaxPrice);
         RadioGroup radioGroupSort = dialog.findViewById(R.id.radioGroupSort);
+        LinearLayout layoutPriceHistogram = dialog.findViewById(R.id.layoutPriceHistogram);
+        ChipGroup chipGroupCategoryFacets = dialog.findViewById(R.id.chipGroupCategoryFacets);
+        TextView textViewMatchCount = dialog.findViewById(R.id.textViewMatchCount);
         Button buttonReset = dialog.findViewById(R.id.buttonReset);
         Button buttonApply = dialog.findViewById(R.id.buttonApply);
 
@@ -371,7 +437,9 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
         textViewMaxPrice.setText(currencyFormat.format(currentMaxPrice));
 
         // Set initial sort option
-        if (isAscendingSort) {
+        if (sortOrder == FilterCriteria.SortOrder.RELEVANCE) {
+            radioGroupSort.check(R.id.radioButtonRelevance);
+        } else if (sortOrder == FilterCriteria.SortOrder.PRICE_ASCENDING) {
             radioGroupSort.check(R.id.radioButtonPriceLowToHigh);
         } else {
             radioGroupSort.check(R.id.radioButtonPriceHighToLow);
@@ -382,13 +450,29 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
             List<Float> values = slider.getValues();
             textViewMinPrice.setText(currencyFormat.format(values.get(0)));
             textViewMaxPrice.setText(currencyFormat.format(values.get(1)));
+            highlightPriceBands(layoutPriceHistogram, values.get(0), values.get(1));
         });
 
+        // Counted in the background for the current search, while the dialog is open
+        Observer<Facets> facetsObserver = facets -> {
+            if (facets != null) {
+                showFacets(facets, chipGroupCategoryFacets, textViewMatchCount, layoutPriceHistogram);
+                List<Float> values = rangeSliderPrice.getValues();
+                highlightPriceBands(layoutPriceHistogram, values.get(0), values.get(1));
+            }
+        };
+        viewModel.getFacets().observe(getViewLifecycleOwner(), facetsObserver);
+        dialog.setOnDismissListener(d -> viewModel.getFacets().removeObserver(facetsObserver));
+        viewModel.loadFacets();
+
         // Setup button click listeners
         buttonReset.setOnClickListener(v -> {
             // Reset to maximum range
             rangeSliderPrice.setValues((float) minProductPrice, (float) maxProductPrice);
-            radioGroupSort.check(R.id.radioButtonPriceLowToHigh);
+            radioGroupSort.check(R.id.radioButtonRelevance);
+            if (chipGroupCategoryFacets.getChildCount() > 0) {
+                chipGroupCategoryFacets.check(chipGroupCategoryFacets.getChildAt(0).getId());
+            }
 
             // Update text displays
             textViewMinPrice.setText(currencyFormat.format(minProductPrice));
@@ -403,11 +487,23 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
 
             // Get sort order
             int checkedRadioButtonId = radioGroupSort.getCheckedRadioButtonId();
-            isAscendingSort = checkedRadioButtonId == R.id.radioButtonPriceLowToHigh;
+            if (checkedRadioButtonId == R.id.radioButtonRelevance) {
+                sortOrder = FilterCriteria.SortOrder.RELEVANCE;
+            } else if (checkedRadioButtonId == R.id.radioButtonPriceLowToHigh) {
+                sortOrder = FilterCriteria.SortOrder.PRICE_ASCENDING;
+            } else {
+                sortOrder = FilterCriteria.SortOrder.PRICE_DESCENDING;
+            }
+
+            // A category picked in the dialog is selected in the chip row too
+            Chip facetChip = chipGroupCategoryFacets.findViewById(chipGroupCategoryFacets.getCheckedChipId());
+            if (facetChip != null) {
+                selectCategoryChip((Long) facetChip.getTag());
+            }
 
             // Apply filters and sorting
             viewModel.setFilters(searchQuery, currentCategoryId, minPrice, maxPrice);
-            viewModel.setSortOrder(isAscendingSort);
+            viewModel.setSortOrder(sortOrder);
 
             dialog.dismiss();
         });
@@ -415,6 +511,89 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
         dialog.show();
     }
 
+    /**
+     * Show the match count of each category and a bar for each price band
+     */
+    private void showFacets(Facets facets, ChipGroup chipGroupCategoryFacets, TextView textViewMatchCount,
+                            LinearLayout layoutPriceHistogram) {
+        textViewMatchCount.setText(String.format(Locale.getDefault(), "%d product(s) match", facets.getTotal()));
+
+        // Keeps a choice made before the counts arrived
+        Chip checkedChip = chipGroupCategoryFacets.findViewById(chipGroupCategoryFacets.getCheckedChipId());
+        Long checkedCategoryId = checkedChip != null ? (Long) checkedChip.getTag() : currentCategoryId;
+        chipGroupCategoryFacets.removeAllViews();
+
+        Chip allChip = new Chip(requireContext());
+        allChip.setId(View.generateViewId());
+        allChip.setText(String.format(Locale.getDefault(), "All (%d)", facets.getTotal()));
+        allChip.setCheckable(true);
+        chipGroupCategoryFacets.addView(allChip);
+        chipGroupCategoryFacets.check(allChip.getId());
+
+        List<Category> categories = viewModel.getCategories().getValue();
+        if (categories != null) {
+            for (Category category : categories) {
+                int count = facets.getCategoryCount(category.getCategoryId());
+                Chip chip = new Chip(requireContext());
+                chip.setId(View.generateViewId());
+                chip.setText(String.format(Locale.getDefault(), "%s (%d)", category.getCategoryName(), count));
+                chip.setCheckable(true);
+                chip.setTag(category.getCategoryId());
+                // An empty category stays selectable while it is the current filter
+                chip.setEnabled(count > 0 || category.getCategoryId().equals(checkedCategoryId));
+                chipGroupCategoryFacets.addView(chip);
+                if (category.getCategoryId().equals(checkedCategoryId)) {
+                    chipGroupCategoryFacets.check(chip.getId());
+                }
+            }
+        }
+
+        layoutPriceHistogram.removeAllViews();
+        int[] buckets = facets.getPriceBuckets();
+        int largest = facets.getLargestBucket();
+        int maxHeight = layoutPriceHistogram.getLayoutParams().height;
+        int minHeight = Math.round(2 * getResources().getDisplayMetrics().density);
+        for (int i = 0; i < buckets.length; i++) {
+            View bar = new View(requireContext());
+            int height = largest > 0 ? maxHeight * buckets[i] / largest : 0;
+            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(0, Math.max(height, minHeight), 1f);
+            params.setMarginStart(minHeight / 2);
+            params.setMarginEnd(minHeight / 2);
+            bar.setLayoutParams(params);
+            // The band's price range, for highlighting it against the slider
+            bar.setTag(new double[]{facets.getBucketStart(i), facets.getBucketStart(i + 1)});
+            layoutPriceHistogram.addView(bar);
+        }
+    }
+
+    /**
+     * Color the price bands overlapping the selected range like the slider's active track
+     */
+    private void highlightPriceBands(LinearLayout layoutPriceHistogram, float minPrice, float maxPrice) {
+        int activeColor = ContextCompat.getColor(requireContext(), android.R.color.holo_blue_light);
+        int inactiveColor = Color.parseColor("#DDDDDD");
+        for (int i = 0; i < layoutPriceHistogram.getChildCount(); i++) {
+            View bar = layoutPriceHistogram.getChildAt(i);
+            double[] band = (double[]) bar.getTag();
+            boolean selected = band[1] >= minPrice && band[0] <= maxPrice;
+            bar.setBackgroundColor(selected ? activeColor : inactiveColor);
+        }
+    }
+
+    /**
+     * Check the category chip for a category, or "All" for null
+     */
+    private void selectCategoryChip(Long categoryId) {
+        for (int i = 0; i < chipGroupCategories.getChildCount(); i++) {
+            Chip chip = (Chip) chipGroupCategories.getChildAt(i);
+            boolean matches = categoryId == null ? i == 0 : categoryId.equals(chip.getTag());
+            if (matches) {
+                chip.setChecked(true);
+                return;
+            }
+        }
+    }
+
     private void updateResultCount(int count) {
         if (count == 0) {
             textViewResultCount.setVisibility(View.GONE);
@@ -429,6 +608,13 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        // Stop counting frames if the view goes while the grid is scrolling
+        placeholderFrameCounter.stop();
+        super.onDestroyView();
+    }
+
     @Override
     public void onProductClick(Product product) {
         showProductDetailsDialog(product);
@@ -458,14 +644,6 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
                             }
                         })
                         .show();
-
-                // Update cart badge
-                if (getActivity() != null) {
-                    BottomNavigationView bottomNavigationView = getActivity().findViewById(R.id.bottomNavigationView);
-                    if (bottomNavigationView != null) {
-                        BadgeUtils.updateCartBadge(requireContext(), bottomNavigationView);
-                    }
-                }
             }
 
             @Override
@@ -513,10 +691,10 @@ public class ProductsFragment extends Fragment implements ProductAdapter.OnProdu
 
         // Load product image
         if (product.getImageURL() != null && !product.getImageURL().isEmpty()) {
-            Glide.with(requireContext())
-                    .load(product.getImageURL())
-                    .placeholder(R.drawable.ic_launcher_background)
-                    .error(R.drawable.ic_launcher_background)
+            ProductImages.load(Glide.with(requireContext()), product.getImageURL(), product.getProductId(),
+                    new RequestOptions()
+                            .placeholder(R.drawable.ic_launcher_background)
+                            .error(R.drawable.ic_launcher_background))
                     .into(imageViewProduct);
         }
 
@@ -9,22 +9,29 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.RequestOptions;
 import com.salesapp.android.R;
 import com.salesapp.android.data.model.Product;
+import com.salesapp.android.image.ProductImages;
+import com.salesapp.android.ui.product.ProductDiffCallback;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 
-public class AdminProductAdapter extends RecyclerView.Adapter<AdminProductAdapter.AdminProductViewHolder> {
+/**
+ * Admin product list adapter. New lists are diffed on a background thread, with the product
+ * ID as a stable row ID.
+ */
+public class AdminProductAdapter extends ListAdapter<Product, AdminProductAdapter.AdminProductViewHolder> {
+    private static final RequestOptions IMAGE_OPTIONS = new RequestOptions()
+            .centerCrop()
+            .placeholder(R.drawable.ic_launcher_background)
+            .error(R.drawable.ic_launcher_background);
 
-    private List<Product> products;
     private final Context context;
     private final AdminProductListener listener;
 
@@ -33,10 +40,11 @@ public class AdminProductAdapter extends RecyclerView.Adapter<AdminProductAdapte
         void onDeleteClick(Product product);
     }
 
-    public AdminProductAdapter(Context context, List<Product> products, AdminProductListener listener) {
+    public AdminProductAdapter(Context context, AdminProductListener listener) {
+        super(new ProductDiffCallback());
         this.context = context;
-        this.products = products;
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -49,25 +57,13 @@ public class AdminProductAdapter extends RecyclerView.Adapter<AdminProductAdapte
 
     @Override
     public void onBindViewHolder(@NonNull AdminProductViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = getItem(position);
         holder.bind(product);
     }
 
     @Override
-    public int getItemCount() {
-        return products == null ? 0 : products.size();
-    }
-
-    public void setProducts(List<Product> newProducts) {
-        if (newProducts == null) {
-            newProducts = new ArrayList<>();
-        }
-
-        // Use DiffUtil to calculate the difference and dispatch updates
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new ProductDiffCallback(this.products, newProducts));
-
-        this.products = new ArrayList<>(newProducts);
-        diffResult.dispatchUpdatesTo(this);
+    public long getItemId(int position) {
+        return getItem(position).getProductId();
     }
 
     class AdminProductViewHolder extends RecyclerView.ViewHolder {
@@ -106,11 +102,7 @@ public class AdminProductAdapter extends RecyclerView.Adapter<AdminProductAdapte
 
             // Load product image
             if (product.getImageURL() != null && !product.getImageURL().isEmpty()) {
-                Glide.with(context)
-                        .load(product.getImageURL())
-                        .apply(new RequestOptions().centerCrop())
-                        .placeholder(R.drawable.ic_launcher_background)
-                        .error(R.drawable.ic_launcher_background)
+                ProductImages.load(Glide.with(context), product.getImageURL(), product.getProductId(), IMAGE_OPTIONS)
                         .into(imageViewProduct);
             } else {
                 imageViewProduct.setImageResource(R.drawable.ic_launcher_background);
@@ -121,42 +113,4 @@ public class AdminProductAdapter extends RecyclerView.Adapter<AdminProductAdapte
             buttonDelete.setOnClickListener(v -> listener.onDeleteClick(product));
         }
     }
-
-    private static class ProductDiffCallback extends DiffUtil.Callback {
-        private final List<Product> oldList;
-        private final List<Product> newList;
-
-        public ProductDiffCallback(List<Product> oldList, List<Product> newList) {
-            this.oldList = oldList != null ? oldList : new ArrayList<>();
-            this.newList = newList != null ? newList : new ArrayList<>();
-        }
-
-        @Override
-        public int getOldListSize() {
-            return oldList.size();
-        }
-
-        @Override
-        public int getNewListSize() {
-            return newList.size();
-        }
-
-        @Override
-        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-            return oldList.get(oldItemPosition).getProductId().equals(
-                    newList.get(newItemPosition).getProductId());
-        }
-
-        @Override
-        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-            Product oldProduct = oldList.get(oldItemPosition);
-            Product newProduct = newList.get(newItemPosition);
-
-            // Compare relevant fields
-            boolean samePrice = oldProduct.getPrice() == newProduct.getPrice();
-            boolean sameName = oldProduct.getProductName().equals(newProduct.getProductName());
-
-            return samePrice && sameName;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -20,9 +20,10 @@ import com.google.android.material.snackbar.Snackbar;
 import com.salesapp.android.R;
 import com.salesapp.android.data.model.Product;
 import com.salesapp.android.data.preference.PreferenceManager;
+import com.salesapp.android.ui.product.PaginationScrollListener;
 import com.salesapp.android.ui.product.ProductViewModel;
+import com.salesapp.android.utils.Constants;
 
-import java.util.ArrayList;
 
 /**
  * Fragment for admin product management (CRUD operations)
@@ -67,9 +68,22 @@ public class AdminProductManagementFragment extends Fragment implements AdminPro
         }
 
         // Setup RecyclerView
-        productAdapter = new AdminProductAdapter(requireContext(), new ArrayList<>(), this);
-        recyclerViewProducts.setLayoutManager(new LinearLayoutManager(requireContext()));
+        productAdapter = new AdminProductAdapter(requireContext(), this);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        recyclerViewProducts.setLayoutManager(layoutManager);
         recyclerViewProducts.setAdapter(productAdapter);
+        recyclerViewProducts.addOnScrollListener(new PaginationScrollListener(
+                layoutManager, Constants.PAGE_PREFETCH_DISTANCE) {
+            @Override
+            protected boolean hasMorePages() {
+                return viewModel.hasMoreProducts();
+            }
+
+            @Override
+            protected void loadMore() {
+                viewModel.loadNextPage();
+            }
+        });
 
         // Setup SwipeRefreshLayout
         swipeRefreshLayout.setColorSchemeResources(
@@ -83,7 +97,7 @@ public class AdminProductManagementFragment extends Fragment implements AdminPro
         fabAddProduct.setOnClickListener(v -> showAddProductDialog());
 
         // Initialize ViewModel
-        viewModel = new ProductViewModel(preferenceManager.getToken());
+        viewModel = new ProductViewModel(requireContext(), preferenceManager.getToken());
 
         // Observe data changes
         observeViewModel();
@@ -103,7 +117,7 @@ public class AdminProductManagementFragment extends Fragment implements AdminPro
 
     private void observeViewModel() {
         viewModel.getProducts().observe(getViewLifecycleOwner(), products -> {
-            productAdapter.setProducts(products);
+            productAdapter.submitList(products);
 
             if (products.isEmpty()) {
                 textViewEmpty.setVisibility(View.VISIBLE);
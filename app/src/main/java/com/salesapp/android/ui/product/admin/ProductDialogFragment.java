@@ -80,7 +80,7 @@ public class ProductDialogFragment extends DialogFragment {
 
         // Initialize product service
         PreferenceManager preferenceManager = new PreferenceManager(requireContext());
-        productService = new ProductService(preferenceManager.getToken());
+        productService = new ProductService(requireContext(), preferenceManager.getToken());
     }
 
     @NonNull
@@ -1,9 +1,11 @@
 package com.salesapp.android.utils;
 
 import android.content.Context;
+import android.util.Log;
 import android.view.MenuItem;
 
 import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
 
 import com.google.android.material.badge.BadgeDrawable;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -11,13 +13,23 @@ import com.salesapp.android.R;
 import com.salesapp.android.data.model.response.CartResponse;
 import com.salesapp.android.data.preference.PreferenceManager;
 import com.salesapp.android.data.repository.CartRepository;
+import com.salesapp.android.data.repository.CartStore;
 
 public class BadgeUtils {
 
     /**
-     * Update cart badge in bottom navigation
+     * Keep the cart badge in bottom navigation in sync with the {@link CartStore}
+     * for as long as the owner is alive
      */
-    public static void updateCartBadge(@NonNull Context context, @NonNull BottomNavigationView bottomNavigationView) {
+    public static void bindCartBadge(@NonNull LifecycleOwner owner, @NonNull BottomNavigationView bottomNavigationView) {
+        CartStore.getInstance().getCart().observe(owner,
+                cart -> showCartBadge(bottomNavigationView, cart));
+    }
+
+    /**
+     * Refresh the cart from the server. The badge follows through {@link #bindCartBadge}.
+     */
+    public static void updateCartBadge(@NonNull Context context) {
         // Get token from preferences
         PreferenceManager preferenceManager = new PreferenceManager(context);
         String token = preferenceManager.getToken();
@@ -26,47 +38,45 @@ public class BadgeUtils {
             return;
         }
 
-        // Create cart repository
-        CartRepository cartRepository = new CartRepository(token);
-
-        // Get cart
-        cartRepository.getCart(new CartRepository.CartCallback<CartResponse>() {
+        new CartRepository(token).getCart(new CartRepository.CartCallback<CartResponse>() {
             @Override
             public void onSuccess(CartResponse result) {
-                if (result != null && result.getItems() != null && !result.getItems().isEmpty()) {
-                    // Calculate total items in cart
-                    int itemCount = result.getTotalItemsCount();
-
-                    // Update badge
-                    if (itemCount > 0) {
-                        MenuItem menuItem = bottomNavigationView.getMenu().findItem(R.id.nav_cart);
-                        if (menuItem != null) {
-                            BadgeDrawable badge = bottomNavigationView.getOrCreateBadge(menuItem.getItemId());
-                            badge.setVisible(true);
-
-                            // Cap at 99+ for better UI
-                            if (itemCount > Constants.CART_BADGE_MAX_COUNT) {
-                                badge.setNumber(Constants.CART_BADGE_MAX_COUNT);
-                                badge.setVerticalOffset(10);
-                            } else {
-                                badge.setNumber(itemCount);
-                            }
-                        }
-                    } else {
-                        clearBadge(bottomNavigationView, R.id.nav_cart);
-                    }
-                } else {
-                    clearBadge(bottomNavigationView, R.id.nav_cart);
-                }
+                // Published to the CartStore by the repository
             }
 
             @Override
             public void onError(String message) {
-                clearBadge(bottomNavigationView, R.id.nav_cart);
+                Log.e("BadgeUtils", "Error refreshing cart: " + message);
             }
         });
     }
 
+    /**
+     * Show the item count of the cart on the cart badge
+     */
+    public static void showCartBadge(@NonNull BottomNavigationView bottomNavigationView, CartResponse cart) {
+        // Calculate total items in cart
+        int itemCount = cart != null ? cart.getTotalItemsCount() : 0;
+        if (itemCount <= 0) {
+            clearBadge(bottomNavigationView, R.id.nav_cart);
+            return;
+        }
+
+        MenuItem menuItem = bottomNavigationView.getMenu().findItem(R.id.nav_cart);
+        if (menuItem != null) {
+            BadgeDrawable badge = bottomNavigationView.getOrCreateBadge(menuItem.getItemId());
+            badge.setVisible(true);
+
+            // Cap at 99+ for better UI
+            if (itemCount > Constants.CART_BADGE_MAX_COUNT) {
+                badge.setNumber(Constants.CART_BADGE_MAX_COUNT);
+                badge.setVerticalOffset(10);
+            } else {
+                badge.setNumber(itemCount);
+            }
+        }
+    }
+
     /**
      * Clear badge for a menu item
      */
@@ -15,7 +15,7 @@ import com.salesapp.android.MainActivity;
 import com.salesapp.android.R;
 import com.salesapp.android.data.model.response.CartResponse;
 import com.salesapp.android.data.preference.PreferenceManager;
-import com.salesapp.android.data.repository.CartRepository;
+import com.salesapp.android.data.repository.CartStore;
 
 /**
  * Manages cart notifications, including app icon badge and system notifications
@@ -57,40 +57,21 @@ public class CartNotificationManager {
     }
 
     /**
-     * Update cart notification status based on current cart data
+     * Show or clear the cart notification for the given cart. Observes the {@link CartStore},
+     * which background sync and every cart screen keep up to date.
      */
-    public void updateCartNotification() {
-        // Skip if not logged in
+    public void showForCart(CartResponse cart) {
         if (!preferenceManager.isLoggedIn()) {
             clearNotification();
             return;
         }
 
-        // Get cart data
-        String token = preferenceManager.getToken();
-        CartRepository cartRepository = new CartRepository(token);
-
-        cartRepository.getCart(new CartRepository.CartCallback<CartResponse>() {
-            @Override
-            public void onSuccess(CartResponse result) {
-                if (result != null && result.getItems() != null && !result.getItems().isEmpty()) {
-                    int itemCount = result.getTotalItemsCount();
-                    if (itemCount > 0) {
-                        showCartNotification(itemCount, result.getTotalPrice().toString());
-                    } else {
-                        clearNotification();
-                    }
-                } else {
-                    clearNotification();
-                }
-            }
-
-            @Override
-            public void onError(String message) {
-                Log.e(TAG, "Error fetching cart: " + message);
-                clearNotification();
-            }
-        });
+        int itemCount = cart != null ? cart.getTotalItemsCount() : 0;
+        if (itemCount > 0) {
+            showCartNotification(itemCount, cart.getTotalPrice().toString());
+        } else {
+            clearNotification();
+        }
     }
 
     /**
@@ -15,6 +15,7 @@ public class Constants {
     public static final String KEY_EMAIL = "email";
     public static final String KEY_ROLE = "role";
     public static final String KEY_IS_LOGGED_IN = "is_logged_in";
+    public static final String KEY_IMAGE_CACHE_POLICY = "image_cache_policy";
 
     // Intent extras
     public static final String EXTRA_PRODUCT_ID = "product_id";
@@ -44,5 +45,30 @@ public class Constants {
 
     // Others
     public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final int PRODUCT_GRID_SPAN_COUNT = 2;
+    public static final int PAGE_PREFETCH_DISTANCE = 6;  // Items from the end at which the next page is requested
+    public static final int STREAM_FIRST_CHUNK_SIZE = 20;  // Products decoded before the grid is first updated
+    public static final int STREAM_MAX_CHUNK_SIZE = 2000;
+    public static final long STREAM_MERGE_INTERVAL_MS = 250;  // Minimum time between grid updates while the catalog streams
     public static final int CART_BADGE_MAX_COUNT = 99;
+    public static final long CART_FRESHNESS_WINDOW_MS = 2000;  // Back-to-back cart reads within this window share one response
+    public static final long SEARCH_DEBOUNCE_MS = 300;  // Quiet time after the last keystroke before a search runs
+    public static final int REMOTE_SEARCH_MIN_LENGTH = 2;  // Shorter queries are only searched locally
+    public static final long CART_UPDATE_DEBOUNCE_MS = 350;  // Quiet time after the last +/- tap before the quantity is sent
+    public static final long CART_SYNC_BASE_INTERVAL_MINUTES = 15;  // Background cart sync interval, doubled while the cart is unchanged
+    public static final long CART_SYNC_MAX_INTERVAL_MINUTES = 6 * 60;
+    public static final int IMAGE_SIZE_STEP_PX = 160;  // Requested image sizes are rounded up to this step so similar views share a variant
+    public static final int IMAGE_MAX_REQUEST_PX = 1280;  // Largest variant requested from the server
+    public static final String IMAGE_WIDTH_PARAM = "w";  // Query parameters of the server's resized variants
+    public static final String IMAGE_HEIGHT_PARAM = "h";
+    public static final int IMAGE_MEMORY_CACHE_HEAP_DIVISOR = 8;  // The image memory cache gets this fraction of the app's heap limit
+    public static final int IMAGE_LOW_RAM_MEMORY_CLASS_MB = 128;  // Heap limits up to this size count as a low-RAM device
+    public static final long IMAGE_DISK_CACHE_MB = 250;
+    public static final long IMAGE_DISK_CACHE_LOW_RAM_MB = 80;
+    public static final int IMAGE_RECENT_EVENTS = 200;  // Image loads kept individually for the metrics export
+    public static final int IMAGE_PRELOAD_ROWS = 3;  // Grid rows of images loaded ahead of the scroll; 0 turns preloading off
+    public static final long IMAGE_PREFETCH_INTERVAL_HOURS = 24;  // Background catalog image prefetch runs at most this often
+    public static final int IMAGE_PREFETCH_DISK_BUDGET_PERCENT = 50;  // Share of the image disk cache one prefetch pass may download
+    public static final long IMAGE_PREFETCH_TIMEOUT_SECONDS = 30;
+    public static final int IMAGE_PREFETCH_SAVE_INTERVAL = 20;  // Products between saves of the prefetch position
 }
\ No newline at end of file
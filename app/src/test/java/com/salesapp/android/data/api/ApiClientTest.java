@@ -0,0 +1,98 @@
+package com.salesapp.android.data.api;
+
+import com.salesapp.android.data.api.service.CartService;
+import com.salesapp.android.data.api.service.ProductService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that every client handed out by {@link ApiClient} shares one connection pool.
+ */
+public class ApiClientTest {
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        ApiClient.setBaseUrl(server.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void anonymousAndAuthenticatedCallsShareOneConnection() throws Exception {
+        int requests = 6;
+        for (int i = 0; i < requests; i++) {
+            server.enqueue(new MockResponse().setBody(i % 2 == 0 ? "{}" : "[]"));
+        }
+
+        for (int i = 0; i < requests; i++) {
+            if (i % 2 == 0) {
+                // Each call asks for the service again, the way repositories do
+                ApiClient.getAuthService("token", CartService.class).getCart().execute();
+            } else {
+                ApiClient.getService(ProductService.class).getAllProducts().execute();
+            }
+        }
+
+        assertEquals(requests, server.getRequestCount());
+        for (int i = 0; i < requests; i++) {
+            RecordedRequest request = server.takeRequest();
+            // Sequence number is the request's index on its connection
+            assertEquals(i, request.getSequenceNumber());
+            if (i % 2 == 0) {
+                assertEquals("Bearer token", request.getHeader("Authorization"));
+            } else {
+                assertNull(request.getHeader("Authorization"));
+            }
+        }
+        assertEquals(1, ApiClient.getHttpClient().connectionPool().connectionCount());
+    }
+
+    @Test
+    public void servicesAndClientsAreReused() {
+        assertSame(ApiClient.getAuthClient("token"), ApiClient.getAuthClient("token"));
+        assertSame(ApiClient.getAuthService("token", CartService.class),
+                ApiClient.getAuthService("token", CartService.class));
+        assertSame(ApiClient.getService(ProductService.class),
+                ApiClient.getService(ProductService.class));
+        assertNotSame(ApiClient.getAuthClient("token"), ApiClient.getAuthClient("other"));
+
+        Call.Factory authFactory = ApiClient.getAuthClient("token").callFactory();
+        assertTrue(authFactory instanceof OkHttpClient);
+        OkHttpClient authClient = (OkHttpClient) authFactory;
+        assertSame(ApiClient.getHttpClient().connectionPool(), authClient.connectionPool());
+        assertSame(ApiClient.getHttpClient().dispatcher(), authClient.dispatcher());
+    }
+
+    @Test
+    public void streamingServicesAreReusedWithoutEvictingTheAuthClient() {
+        Retrofit authClient = ApiClient.getAuthClient("token");
+        CartService cartService = ApiClient.getAuthService("token", CartService.class);
+
+        ProductService streaming = ApiClient.getStreamingService("other", ProductService.class);
+        assertSame(streaming, ApiClient.getStreamingService("other", ProductService.class));
+        assertSame(ApiClient.getStreamingService(null, ProductService.class),
+                ApiClient.getStreamingService(null, ProductService.class));
+        assertNotSame(streaming, ApiClient.getStreamingService(null, ProductService.class));
+
+        // A streaming service for another token leaves the authenticated client alone
+        assertSame(authClient, ApiClient.getAuthClient("token"));
+        assertSame(cartService, ApiClient.getAuthService("token", CartService.class));
+    }
+}
@@ -0,0 +1,53 @@
+package com.salesapp.android.data.api;
+
+import com.google.gson.reflect.TypeToken;
+import com.salesapp.android.data.model.Category;
+import com.salesapp.android.data.model.Product;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+import static org.junit.Assert.*;
+
+public class CachedBodyConverterFactoryTest {
+    private static final String JSON = "[{\"productId\":1,\"productName\":\"Phone\","
+            + "\"category\":{\"categoryId\":2,\"categoryName\":\"Phones\"}}]";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void notModifiedBodyNeverSharesObjectsWithTheCache() throws Exception {
+        Type type = new TypeToken<List<Product>>() {}.getType();
+        Converter<ResponseBody, ?> converter = CachedBodyConverterFactory.create()
+                .responseBodyConverter(type, new Annotation[0], null);
+
+        List<Product> first = (List<Product>) converter.convert(body(JSON, false));
+        // A caller editing what it got, down to the nested category
+        first.get(0).setProductName("Edited");
+        first.get(0).getCategory().setCategoryName("Edited");
+        first.add(new Product());
+
+        List<Product> second = (List<Product>) converter.convert(body("", true));
+        assertEquals(1, second.size());
+        assertEquals("Phone", second.get(0).getProductName());
+        Category category = second.get(0).getCategory();
+        assertEquals("Phones", category.getCategoryName());
+
+        category.setCategoryName("Edited again");
+        List<Product> third = (List<Product>) converter.convert(body("", true));
+        assertEquals("Phones", third.get(0).getCategory().getCategoryName());
+    }
+
+    private static ResponseBody body(String json, boolean notModified) {
+        MediaType contentType = MediaType.get("application/json; "
+                + ConditionalCacheInterceptor.PARAM_CACHE_KEY + "=products; "
+                + ConditionalCacheInterceptor.PARAM_NOT_MODIFIED + "=" + notModified);
+        return ResponseBody.create(json, contentType);
+    }
+}
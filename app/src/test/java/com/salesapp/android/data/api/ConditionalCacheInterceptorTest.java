@@ -0,0 +1,93 @@
+package com.salesapp.android.data.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class ConditionalCacheInterceptorTest {
+    private MockWebServer server;
+    private Cache cache;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        File directory = Files.createTempDirectory("http-cache").toFile();
+        cache = new Cache(directory, 1024 * 1024);
+        client = new OkHttpClient.Builder()
+                .cache(cache)
+                .addInterceptor(new ConditionalCacheInterceptor())
+                .addNetworkInterceptor(new ConditionalCacheInterceptor.NetworkInterceptor())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        cache.delete();
+    }
+
+    @Test
+    public void revalidatesSharedResponses() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("[]"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals("[]", get("/api/products"));
+        assertEquals("[]", get("/api/products"));
+
+        server.takeRequest();
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void neverStoresTheCart() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("{\"userId\":1}"));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("{\"userId\":2}"));
+
+        assertEquals("{\"userId\":1}", get("/api/cart"));
+        // Another user on the same device gets their own cart, not a revalidated copy
+        assertEquals("{\"userId\":2}", get("/api/cart"));
+
+        server.takeRequest();
+        RecordedRequest second = server.takeRequest();
+        assertNull(second.getHeader("If-None-Match"));
+        assertEquals(0, cache.writeSuccessCount());
+    }
+
+    @Test
+    public void passesTheCallersCartValidatorThrough() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        Request request = new Request.Builder()
+                .url(server.url("/api/cart"))
+                .header("If-None-Match", "\"v1\"")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(304, response.code());
+        }
+
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(0, cache.writeSuccessCount());
+    }
+
+    private String get(String path) throws Exception {
+        Request request = new Request.Builder().url(server.url(path)).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.salesapp.android.data.api;
+
+import com.google.gson.Gson;
+import com.salesapp.android.data.model.Product;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProductStreamReaderTest {
+    private static final int CATALOG_SIZE = 50_000;
+    // Gson's JsonReader reads ahead by at most its 1024 char buffer; twice that leaves slack
+    private static final int MAX_READ_AHEAD_CHARS = 2048;
+
+    @Test
+    public void decodesLargeCatalogInGrowingChunks() throws IOException {
+        String json = buildCatalog(CATALOG_SIZE);
+        CountingReader reader = new CountingReader(new StringReader(json));
+        List<Integer> chunkSizes = new ArrayList<>();
+        long[] charsReadAtFirstChunk = {-1};
+        long[] lastId = {0};
+
+        ProductStreamReader streamReader = new ProductStreamReader(new Gson(), 20, 2000);
+        int total = streamReader.read(reader, chunk -> {
+            if (chunkSizes.isEmpty()) {
+                charsReadAtFirstChunk[0] = reader.count;
+            }
+            chunkSizes.add(chunk.size());
+            for (Product product : chunk) {
+                // Order is preserved across chunks
+                assertEquals(lastId[0] + 1, (long) product.getProductId());
+                lastId[0] = product.getProductId();
+            }
+        });
+
+        assertEquals(CATALOG_SIZE, total);
+        assertEquals(CATALOG_SIZE, lastId[0]);
+        assertEquals(20, (int) chunkSizes.get(0));
+        assertEquals(40, (int) chunkSizes.get(1));
+        for (int size : chunkSizes) {
+            assertTrue(size <= 2000);
+        }
+
+        // The first chunk is delivered after reading only a small prefix of the body
+        assertTrue(charsReadAtFirstChunk[0] < json.length() / 100);
+    }
+
+    @Test
+    public void holdsOneChunkAndReadsLittleAheadOfIt() throws IOException {
+        List<Integer> productEnds = new ArrayList<>();
+        String json = buildCatalog(CATALOG_SIZE, productEnds);
+        CountingReader reader = new CountingReader(new StringReader(json));
+        Map<List<Product>, Integer> chunkSizes = new IdentityHashMap<>();
+        long[] maxReadAhead = {0};
+
+        new ProductStreamReader(new Gson(), 20, 2000).read(reader, chunk -> {
+            // A new list every time, so the reader keeps no earlier chunk alive
+            assertNull(chunkSizes.put(chunk, chunk.size()));
+            long lastId = chunk.get(chunk.size() - 1).getProductId();
+            maxReadAhead[0] = Math.max(maxReadAhead[0], reader.count - productEnds.get((int) lastId - 1));
+        });
+
+        // Chunks are never filled further once handed out
+        for (Map.Entry<List<Product>, Integer> entry : chunkSizes.entrySet()) {
+            assertEquals((int) entry.getValue(), entry.getKey().size());
+            assertTrue(entry.getValue() <= 2000);
+        }
+        // The body is read no further ahead of the decoded products than one read buffer
+        assertTrue("Read " + maxReadAhead[0] + " chars ahead", maxReadAhead[0] <= MAX_READ_AHEAD_CHARS);
+    }
+
+    @Test
+    public void emptyArrayProducesNoChunks() throws IOException {
+        ProductStreamReader streamReader = new ProductStreamReader(new Gson(), 20, 2000);
+        int total = streamReader.read(new StringReader("[]"), chunk -> fail("Unexpected chunk"));
+        assertEquals(0, total);
+    }
+
+    private static String buildCatalog(int size) {
+        return buildCatalog(size, new ArrayList<>());
+    }
+
+    /**
+     * @param productEnds Receives the offset just past each product's object
+     */
+    private static String buildCatalog(int size, List<Integer> productEnds) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= size; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"productId\":").append(i)
+                    .append(",\"productName\":\"Product ").append(i)
+                    .append("\",\"briefDescription\":\"Brief ").append(i)
+                    .append("\",\"fullDescription\":\"Full description of product ").append(i)
+                    .append("\",\"technicalSpecifications\":\"Specs ").append(i)
+                    .append("\",\"price\":").append(i % 1000)
+                    .append(",\"imageURL\":\"http://example.com/").append(i)
+                    .append(".jpg\",\"category\":{\"categoryId\":").append(i % 10)
+                    .append(",\"categoryName\":\"Category ").append(i % 10).append("\"}}");
+            productEnds.add(json.length());
+        }
+        return json.append(']').toString();
+    }
+
+    private static class CountingReader extends Reader {
+        private final Reader delegate;
+        long count;
+
+        CountingReader(Reader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.salesapp.android.data.model.response;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CartResponseTest {
+
+    @Test
+    public void recountsItemsAfterAnEdit() {
+        CartResponse cart = cart(item(1L, "10.00", 2), item(2L, "5.00", 1));
+
+        CartResponse edited = cart.copyWithQuantity(1L, 5);
+        assertEquals(6, edited.getItemCount());
+        assertEquals(0, new BigDecimal("55.00").compareTo(edited.getTotalPrice()));
+
+        CartResponse removed = edited.copyWithQuantity(2L, 0);
+        assertEquals(5, removed.getItemCount());
+        assertEquals(1, removed.getItems().size());
+
+        // The original is left as it was
+        assertEquals(3, cart.getItemCount());
+    }
+
+    private static CartResponse cart(CartItemResponse... items) {
+        List<CartItemResponse> list = new ArrayList<>();
+        int count = 0;
+        for (CartItemResponse item : items) {
+            list.add(item);
+            count += item.getQuantity();
+        }
+        CartResponse cart = new CartResponse();
+        cart.setItems(list);
+        cart.setItemCount(count);
+        return cart;
+    }
+
+    private static CartItemResponse item(Long id, String price, int quantity) {
+        CartItemResponse item = new CartItemResponse();
+        item.setCartItemId(id);
+        item.setPrice(new BigDecimal(price));
+        item.setQuantity(quantity);
+        item.setSubtotal(new BigDecimal(price).multiply(BigDecimal.valueOf(quantity)));
+        return item;
+    }
+}
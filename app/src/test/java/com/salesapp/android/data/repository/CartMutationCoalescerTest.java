@@ -0,0 +1,222 @@
+package com.salesapp.android.data.repository;
+
+import com.salesapp.android.data.api.ApiClient;
+import com.salesapp.android.data.model.response.CartItemResponse;
+import com.salesapp.android.data.model.response.CartResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sends taps through {@link CartMutationCoalescer} and {@link CartRepository#updateCartItem} to a
+ * mock server, and counts the requests and the carts the repository publishes.
+ */
+public class CartMutationCoalescerTest {
+    private static final long DEBOUNCE_MS = 100;
+    private static final Long ITEM_ID = 7L;
+    private static final Long OTHER_ITEM_ID = 8L;
+
+    private MockWebServer server;
+    private ScheduledExecutorService scheduler;
+    private CartMutationCoalescer coalescer;
+
+    private final List<CartResponse> settled = new CopyOnWriteArrayList<>();
+    private final List<String> failures = new CopyOnWriteArrayList<>();
+    private final List<CartResponse> published = new CopyOnWriteArrayList<>();
+    private CountDownLatch reported = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        ApiClient.setBaseUrl(server.url("/").toString());
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        CartRepository.setPlatform(new CartRepository.Platform() {
+            @Override
+            public void post(Runnable task) {
+                task.run();
+            }
+
+            @Override
+            public long elapsedRealtime() {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            }
+
+            @Override
+            public void log(String message) {
+            }
+
+            @Override
+            public void logError(String message, Throwable t) {
+            }
+
+            @Override
+            public void publish(CartResponse cart) {
+                published.add(cart);
+            }
+
+            @Override
+            public void clear() {
+                published.clear();
+            }
+        });
+        CartRepository.resetSharedState();
+
+        CartRepository repository = new CartRepository("token");
+        coalescer = new CartMutationCoalescer(repository::updateCartItem, new CartMutationCoalescer.Listener() {
+            @Override
+            public void onSettled(Long cartItemId, CartResponse cart) {
+                settled.add(cart);
+                reported.countDown();
+            }
+
+            @Override
+            public void onFailed(Long cartItemId, String message) {
+                failures.add(message);
+                reported.countDown();
+            }
+        }, scheduler, DEBOUNCE_MS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.shutdownNow();
+        server.shutdown();
+        CartRepository.resetSharedState();
+        CartRepository.setPlatform(null);
+    }
+
+    @Test
+    public void burstOfTapsSendsOneRequestWithFinalQuantity() throws Exception {
+        server.enqueue(cartResponse(ITEM_ID, 6));
+
+        // Five taps on + starting from a quantity of 1
+        for (int quantity = 2; quantity <= 6; quantity++) {
+            coalescer.setQuantity(ITEM_ID, quantity);
+        }
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        // Give a stray request time to show up
+        Thread.sleep(DEBOUNCE_MS * 3);
+
+        assertEquals(1, server.getRequestCount());
+        assertQuantity(server.takeRequest(), ITEM_ID, 6);
+        assertEquals(1, settled.size());
+        assertTrue(failures.isEmpty());
+        assertFalse(coalescer.isPending(ITEM_ID));
+        assertEquals(6, publishedQuantity(ITEM_ID));
+    }
+
+    @Test
+    public void tapsDuringRequestAreSentOnceItReturns() throws Exception {
+        server.enqueue(cartResponse(ITEM_ID, 2).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(cartResponse(ITEM_ID, 5));
+
+        coalescer.setQuantity(ITEM_ID, 2);
+        RecordedRequest first = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertQuantity(first, ITEM_ID, 2);
+
+        // Three more taps while the first request is still in flight
+        coalescer.setQuantity(ITEM_ID, 3);
+        coalescer.setQuantity(ITEM_ID, 4);
+        coalescer.setQuantity(ITEM_ID, 5);
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        Thread.sleep(DEBOUNCE_MS * 3);
+
+        assertEquals(2, server.getRequestCount());
+        assertQuantity(server.takeRequest(), ITEM_ID, 5);
+        // The response to the stale request is published but not reported
+        assertEquals(1, settled.size());
+        assertEquals(5, (int) settled.get(0).getItems().get(0).getQuantity());
+        assertEquals(2, published.size());
+        assertEquals(5, publishedQuantity(ITEM_ID));
+    }
+
+    @Test
+    public void olderResponseDoesNotReplaceNewerCart() throws Exception {
+        reported = new CountDownLatch(2);
+        // The server answers the later request first
+        server.enqueue(cartResponse(ITEM_ID, 2, OTHER_ITEM_ID, 1).setBodyDelay(500, TimeUnit.MILLISECONDS));
+        server.enqueue(cartResponse(ITEM_ID, 2, OTHER_ITEM_ID, 3));
+
+        coalescer.setQuantity(ITEM_ID, 2);
+        RecordedRequest older = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(older);
+        coalescer.setQuantity(OTHER_ITEM_ID, 3);
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+        assertQuantity(older, ITEM_ID, 2);
+        assertQuantity(server.takeRequest(), OTHER_ITEM_ID, 3);
+
+        // Both items settled, but only the newer cart was published
+        assertEquals(2, settled.size());
+        assertEquals(1, published.size());
+        assertEquals(3, publishedQuantity(OTHER_ITEM_ID));
+    }
+
+    @Test
+    public void failureOfLatestQuantityIsReported() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        coalescer.setQuantity(ITEM_ID, 3);
+        coalescer.setQuantity(ITEM_ID, 4);
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertQuantity(server.takeRequest(), ITEM_ID, 4);
+        assertTrue(settled.isEmpty());
+        assertEquals(1, failures.size());
+        assertTrue(published.isEmpty());
+    }
+
+    private int publishedQuantity(Long cartItemId) {
+        CartResponse cart = published.get(published.size() - 1);
+        for (CartItemResponse item : cart.getItems()) {
+            if (cartItemId.equals(item.getCartItemId())) {
+                return item.getQuantity();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Cart with the given item IDs and quantities, in pairs
+     */
+    private static MockResponse cartResponse(Object... itemsAndQuantities) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < itemsAndQuantities.length; i += 2) {
+            if (i > 0) {
+                items.append(',');
+            }
+            items.append("{\"cartItemId\":").append(itemsAndQuantities[i])
+                    .append(",\"price\":2.5,\"quantity\":").append(itemsAndQuantities[i + 1]).append('}');
+        }
+        return new MockResponse().setBody("{\"cartId\":1,\"items\":[" + items + "]}");
+    }
+
+    private static void assertQuantity(RecordedRequest request, Long cartItemId, int quantity) {
+        assertEquals("PUT", request.getMethod());
+        assertEquals("/api/cart/items", request.getPath());
+        String body = request.getBody().readUtf8();
+        assertTrue(body, body.contains("\"cartItemId\":" + cartItemId));
+        assertTrue(body, body.contains("\"quantity\":" + quantity));
+    }
+}
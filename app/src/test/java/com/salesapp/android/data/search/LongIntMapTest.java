@@ -0,0 +1,64 @@
+package com.salesapp.android.data.search;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongIntMapTest {
+
+    @Test
+    public void putsReplacesAndRemoves() {
+        LongIntMap map = new LongIntMap();
+        assertEquals(-1, map.get(7, -1));
+
+        map.put(7, 1);
+        map.put(7, 2);
+        map.put(-3, 3);
+        assertEquals(2, map.get(7, -1));
+        assertEquals(3, map.get(-3, -1));
+        assertEquals(2, map.size());
+
+        map.remove(7);
+        map.remove(8);
+        assertEquals(-1, map.get(7, -1));
+        assertEquals(1, map.size());
+
+        // The key a free entry is marked with is stored like any other
+        map.put(Long.MIN_VALUE, 4);
+        assertEquals(4, map.get(Long.MIN_VALUE, -1));
+        assertEquals(2, map.size());
+
+        map.clear();
+        assertEquals(-1, map.get(-3, -1));
+        assertEquals(-1, map.get(Long.MIN_VALUE, -1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomChanges() {
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range forces long probe runs and removals in the middle of them
+            long key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 5000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value != null ? value : -1, map.get(key, -1));
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.model.Category;
+import com.salesapp.android.data.model.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ProductFilterEngineTest {
+    private static final long FRAME_BUDGET_MICROS = 16_000;
+    private static final int BENCHMARK_ROUNDS = 10;
+
+    @Test
+    public void rapidRequestsNeverPublishOutOfOrder() throws Exception {
+        List<Product> catalog = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id++) {
+            catalog.add(product(id, "Sản phẩm " + id, id % 10, id));
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Integer> published = Collections.synchronizedList(new ArrayList<>());
+        List<List<Product>> results = Collections.synchronizedList(new ArrayList<>());
+        ProductFilterEngine engine = new ProductFilterEngine(executor, (criteria, products) -> {
+            // Each request is numbered by its maximum price
+            published.add((int) criteria.getMaxPrice());
+            results.add(products);
+        });
+        engine.setAll(catalog);
+
+        int requests = 500;
+        for (int i = 1; i <= requests; i++) {
+            engine.filter(new FilterCriteria("san pham", i % 2 == 0 ? 3L : null, 0, i,
+                    i % 2 == 1 ? FilterCriteria.SortOrder.PRICE_ASCENDING : FilterCriteria.SortOrder.PRICE_DESCENDING));
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertFalse(published.isEmpty());
+        for (int i = 1; i < published.size(); i++) {
+            assertTrue("published " + published.get(i) + " after " + published.get(i - 1),
+                    published.get(i) > published.get(i - 1));
+        }
+        assertEquals(requests, (int) published.get(published.size() - 1));
+
+        // Request 500: category 3, price up to 500, descending
+        List<Product> last = results.get(results.size() - 1);
+        assertEquals(50, last.size());
+        assertEquals(493L, (long) last.get(0).getProductId());
+        assertEquals(3L, (long) last.get(last.size() - 1).getProductId());
+    }
+
+    @Test
+    public void filtersSeeEarlierCatalogChanges() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<List<Product>> results = Collections.synchronizedList(new ArrayList<>());
+        ProductFilterEngine engine = new ProductFilterEngine(executor, (criteria, products) -> results.add(products));
+
+        List<Product> catalog = new ArrayList<>();
+        catalog.add(product(1, "Laptop Dell", 1, 900));
+        catalog.add(product(2, "Laptop Asus", 1, 700));
+        engine.setAll(catalog);
+        // The engine keeps its own copy
+        catalog.clear();
+
+        engine.put(product(3, "Laptop HP", 2, 800));
+        engine.remove(1L);
+        engine.filter(new FilterCriteria("laptop", null, 0, 1000, FilterCriteria.SortOrder.PRICE_ASCENDING));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, results.size());
+        List<Product> result = results.get(0);
+        assertEquals(2, result.size());
+        assertEquals(2L, (long) result.get(0).getProductId());
+        assertEquals(3L, (long) result.get(1).getProductId());
+    }
+
+    @Test
+    public void narrowsPreviousMatchesUntilRefinementIsUnsafe() throws Exception {
+        List<Product> catalog = new ArrayList<>();
+        catalog.add(product(1, "Laptop Dell", 1, 900));
+        catalog.add(product(2, "Laptop Asus", 1, 700));
+        catalog.add(product(3, "Lạp xưởng", 2, 50));
+        catalog.add(product(4, "Bàn phím laptop", 3, 40));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<List<Product>> results = Collections.synchronizedList(new ArrayList<>());
+        ProductFilterEngine engine = new ProductFilterEngine(executor, (criteria, products) -> results.add(products));
+        engine.setAll(catalog);
+
+        engine.filter(new FilterCriteria("lap", null, 0, 1000, FilterCriteria.SortOrder.PRICE_ASCENDING));
+        awaitIdle(executor);
+        assertIds(results, 4, 3, 2, 1);
+
+        engine.filter(new FilterCriteria("lapt", null, 0, 1000, FilterCriteria.SortOrder.PRICE_ASCENDING));
+        awaitIdle(executor);
+        assertIds(results, 4, 2, 1);
+
+        // Narrower price range and a category on top of a longer query
+        engine.filter(new FilterCriteria("laptop", 1L, 0, 800, FilterCriteria.SortOrder.PRICE_DESCENDING));
+        awaitIdle(executor);
+        assertIds(results, 2);
+        assertEquals(2, engine.getRefinedRuns());
+
+        // Widening the price range must search the catalog again
+        engine.filter(new FilterCriteria("laptop", 1L, 0, 1000, FilterCriteria.SortOrder.PRICE_DESCENDING));
+        awaitIdle(executor);
+        assertIds(results, 1, 2);
+        assertEquals(2, engine.getRefinedRuns());
+
+        engine.filter(new FilterCriteria("laptop d", 1L, 0, 1000, FilterCriteria.SortOrder.PRICE_DESCENDING));
+        awaitIdle(executor);
+        assertIds(results, 1);
+        assertEquals(3, engine.getRefinedRuns());
+
+        // A product changed since the last run may match now
+        engine.put(product(2, "Laptop Dell XPS", 1, 950));
+        engine.filter(new FilterCriteria("laptop de", 1L, 0, 1000, FilterCriteria.SortOrder.PRICE_DESCENDING));
+        awaitIdle(executor);
+        assertIds(results, 2, 1);
+        assertEquals(3, engine.getRefinedRuns());
+
+        engine.remove(1L);
+        engine.filter(new FilterCriteria("laptop del", 1L, 0, 1000, FilterCriteria.SortOrder.PRICE_DESCENDING));
+        awaitIdle(executor);
+        assertIds(results, 2);
+        assertEquals(3, engine.getRefinedRuns());
+
+        executor.shutdown();
+    }
+
+    /**
+     * Every ranked query over a 50k catalog, typo included, must fit in one frame. Each query
+     * is timed as the best of several runs, so a GC pause or a slow CI machine's noise does
+     * not fail the test, while a slower algorithm still does.
+     */
+    @Test
+    public void ranksLargeCatalogWithinFrameBudget() throws Exception {
+        String[] brands = {"Samsung", "Apple", "Xiaomi", "Oppo", "Dell", "Asus", "Lenovo", "Sony"};
+        String[] kinds = {"Điện thoại", "Laptop", "Tai nghe", "Máy tính bảng", "Đồng hồ", "Loa"};
+        List<Product> catalog = new ArrayList<>();
+        for (long id = 1; id <= 50_000; id++) {
+            Product product = product(id, kinds[(int) (id % kinds.length)] + " " + brands[(int) (id % 7 % brands.length)]
+                    + " đời " + id, id % 20, id % 5000);
+            product.setBriefDescription("Hàng chính hãng, bảo hành " + (id % 24) + " tháng");
+            product.setFullDescription("Sản phẩm " + brands[(int) (id % brands.length)]
+                    + " thiết kế mỏng nhẹ, pin bền bỉ, phù hợp cho công việc và giải trí");
+            product.setTechnicalSpecifications("RAM " + (4 << (id % 4)) + "GB, bộ nhớ " + (64 << (id % 3)) + "GB");
+            catalog.add(product);
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<List<Product>> results = Collections.synchronizedList(new ArrayList<>());
+        ProductFilterEngine engine = new ProductFilterEngine(executor, (criteria, products) -> results.add(products));
+        engine.setAll(catalog);
+        awaitIdle(executor);
+
+        String[] queries = {"dien thoai samsung", "laptop del", "tai nghe sony", "samsumg", "ram 16gb", "mong nhe"};
+        long[] bestMicros = new long[queries.length];
+        Arrays.fill(bestMicros, Long.MAX_VALUE);
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            for (int i = 0; i < queries.length; i++) {
+                long start = System.nanoTime();
+                engine.filter(new FilterCriteria(queries[i], null, 0, 5000, FilterCriteria.SortOrder.RELEVANCE));
+                awaitIdle(executor);
+                bestMicros[i] = Math.min(bestMicros[i], (System.nanoTime() - start) / 1000);
+            }
+        }
+        executor.shutdown();
+
+        for (int i = 0; i < queries.length; i++) {
+            assertTrue("'" + queries[i] + "' took " + bestMicros[i] + " µs", bestMicros[i] < FRAME_BUDGET_MICROS);
+        }
+
+        // "samsumg" is a typo, and Samsung products come first
+        List<Product> typo = results.get(results.size() - 3);
+        assertFalse(typo.isEmpty());
+        assertTrue(typo.get(0).getProductName().contains("Samsung"));
+    }
+
+    @Test
+    public void countsFacetsOfEveryMatchOncePerQuery() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Facets> counted = Collections.synchronizedList(new ArrayList<>());
+        ProductFilterEngine engine = new ProductFilterEngine(executor, new ProductFilterEngine.Listener() {
+            @Override
+            public void onFiltered(FilterCriteria criteria, List<Product> products) {
+            }
+
+            @Override
+            public void onFacetsCounted(String query, Facets facets) {
+                counted.add(facets);
+            }
+        });
+
+        List<Product> catalog = new ArrayList<>();
+        for (long id = 1; id <= 120; id++) {
+            catalog.add(product(id, (id % 3 == 0 ? "Laptop " : "Chuột ") + id, id % 4, id * 10));
+        }
+        engine.setAll(catalog);
+
+        engine.countFacets("laptop", 0, 1200);
+        awaitIdle(executor);
+        Facets laptops = counted.get(0);
+        assertEquals(40, laptops.getTotal());
+        // Every third product is a laptop, and every fourth product is in the same category
+        assertEquals(10, laptops.getCategoryCount(0L));
+        assertEquals(10, laptops.getCategoryCount(3L));
+        assertEquals(0, laptops.getCategoryCount(7L));
+        int[] buckets = laptops.getPriceBuckets();
+        assertEquals(ProductFilterEngine.PRICE_BUCKETS, buckets.length);
+        // Bands of 100: prices 30, 60 and 90 in the first, 1200 counted in the last
+        assertEquals(3, buckets[0]);
+        assertEquals(4, buckets[buckets.length - 1]);
+        assertEquals(100.0, laptops.getBucketStart(1), 0);
+
+        // The same query with different spacing comes from the cache, until the catalog changes
+        engine.countFacets(" Laptop ", 0, 1200);
+        awaitIdle(executor);
+        assertSame(laptops, counted.get(1));
+        assertEquals(1, engine.getFacetCounts());
+
+        engine.put(product(121, "Laptop 121", 0, 5));
+        engine.countFacets("laptop", 0, 1200);
+        engine.countFacets("", 0, 1200);
+        awaitIdle(executor);
+        assertEquals(41, counted.get(2).getTotal());
+        assertEquals(121, counted.get(3).getTotal());
+        assertEquals(3, engine.getFacetCounts());
+        executor.shutdown();
+    }
+
+    private static void awaitIdle(ExecutorService executor) throws Exception {
+        executor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static void assertIds(List<List<Product>> results, long... ids) {
+        List<Product> last = results.get(results.size() - 1);
+        assertEquals(ids.length, last.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], (long) last.get(i).getProductId());
+        }
+    }
+
+    private static Product product(long id, String name, long categoryId, double price) {
+        Category category = new Category();
+        category.setCategoryId(categoryId);
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setPrice(price);
+        product.setCategory(category);
+        return product;
+    }
+}
@@ -0,0 +1,277 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.model.Category;
+import com.salesapp.android.data.model.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProductSearchIndexTest {
+    private static final long FRAME_BUDGET_MICROS = 16_000;
+    private static final int BENCHMARK_ROUNDS = 10;
+
+    @Test
+    public void foldsCaseAndVietnameseDiacritics() {
+        assertEquals("dien thoai thong minh", TextNormalizer.fold("Điện Thoại Thông Minh"));
+        assertEquals("ao so mi nu", TextNormalizer.fold("Áo sơ mi nữ"));
+        assertEquals("laptop", TextNormalizer.fold("LAPTOP"));
+        assertEquals("", TextNormalizer.fold(null));
+    }
+
+    @Test
+    public void matchesNameAndBriefDescriptionIgnoringAccents() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        List<Product> catalog = new ArrayList<>();
+        catalog.add(product(1, "Điện thoại Samsung", "Màn hình lớn"));
+        catalog.add(product(2, "Laptop Dell", "Bàn phím đèn nền"));
+        catalog.add(product(3, "Tai nghe", "Chống ồn"));
+        index.setAll(catalog);
+
+        assertIds(index.search("dien thoai"), 1);
+        assertIds(index.search("ĐIỆN"), 1);
+        assertIds(index.search("ban phim"), 2);
+        assertIds(index.search("chong on"), 3);
+        assertIds(index.search("  "), 1, 2, 3);
+        assertIds(index.search("macbook"));
+    }
+
+    @Test
+    public void followsCreateUpdateAndDelete() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.put(product(1, "Laptop Dell", null));
+        index.put(product(2, "Laptop Asus", null));
+        assertIds(index.search("laptop"), 1, 2);
+
+        index.put(product(1, "Máy tính bảng", null));
+        assertIds(index.search("laptop"), 2);
+        assertIds(index.search("may tinh"), 1);
+
+        index.remove(2L);
+        assertIds(index.search("laptop"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void staysConsistentThroughCompaction() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        for (int round = 0; round < 5; round++) {
+            for (long id = 1; id <= 200; id++) {
+                index.put(product(id, "Sản phẩm " + id + " round " + round, null));
+            }
+        }
+        for (long id = 1; id <= 200; id += 2) {
+            index.remove(id);
+        }
+
+        assertEquals(100, index.size());
+        assertEquals(100, index.search("round 4").size());
+        assertIds(index.search("san pham 10 round"), 10);
+        assertNull(index.get(1L));
+    }
+
+    @Test
+    public void trigramLookupAgreesWithFullScan() {
+        String[] words = {"điện thoại", "laptop", "tai nghe", "bàn phím", "chuột", "màn hình", "sạc nhanh"};
+        ProductSearchIndex index = new ProductSearchIndex();
+        List<Product> expectedCatalog = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            String name = words[(int) (id % words.length)] + " " + words[(int) (id * 7 % words.length)] + " " + id;
+            Product product = product(id, name, words[(int) (id * 3 % words.length)]);
+            index.put(product);
+        }
+        // Updates and removals leave freed slots in the posting lists and trigger compaction
+        for (long id = 1; id <= 300; id += 3) {
+            index.put(product(id, "Sản phẩm mới " + id, "laptop chơi game"));
+        }
+        for (long id = 2; id <= 300; id += 5) {
+            index.remove(id);
+        }
+        for (long id = 1; id <= 300; id++) {
+            if (index.get(id) != null) {
+                expectedCatalog.add(index.get(id));
+            }
+        }
+
+        String[] queries = {"lap", "laptop choi", "dien thoai 1", "phim", "moi 1", "am", "ng 2", "zzz", "game"};
+        for (String query : queries) {
+            List<Long> expected = new ArrayList<>();
+            String folded = TextNormalizer.fold(query);
+            for (Product product : expectedCatalog) {
+                String text = TextNormalizer.fold(product.getProductName()) + '\n'
+                        + TextNormalizer.fold(product.getBriefDescription());
+                if (text.contains(folded)) {
+                    expected.add(product.getProductId());
+                }
+            }
+            List<Long> actual = new ArrayList<>();
+            for (Product product : index.search(query)) {
+                actual.add(product.getProductId());
+            }
+            actual.sort(null);
+            expected.sort(null);
+            assertEquals(query, expected, actual);
+        }
+    }
+
+    @Test
+    public void keepsPriceOrderThroughChanges() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        List<Product> catalog = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            catalog.add(product(id, (id % 4 == 0 ? "Laptop " : "Chuột ") + id, null, (id * 37) % 101));
+        }
+        index.setAll(catalog);
+        for (long id = 1; id <= 500; id += 3) {
+            index.put(product(id, "Laptop mới " + id, null, (id * 53) % 97));
+        }
+        for (long id = 2; id <= 500; id += 4) {
+            index.remove(id);
+        }
+        assertEquals(0.0, index.getLowestPrice(), 0);
+        assertEquals(100.0, index.getHighestPrice(), 0);
+
+        List<Product> live = index.search("");
+        // Every product, a large text match walked through the slice, and a small one sorted
+        List<List<Product>> candidateSets = new ArrayList<>();
+        candidateSets.add(null);
+        candidateSets.add(index.search("laptop"));
+        candidateSets.add(index.search("laptop moi 49"));
+        for (List<Product> candidates : candidateSets) {
+            List<Product> actual = index.inPriceOrder(candidates, 10, 60);
+            List<Product> expected = new ArrayList<>();
+            for (Product product : candidates != null ? candidates : live) {
+                if (product.getPrice() >= 10 && product.getPrice() <= 60) {
+                    expected.add(product);
+                }
+            }
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < actual.size(); i++) {
+                assertTrue(expected.contains(actual.get(i)));
+                if (i > 0) {
+                    assertTrue(actual.get(i - 1).getPrice() <= actual.get(i).getPrice());
+                }
+            }
+        }
+
+        assertTrue(index.inPriceOrder(null, 200, 300).isEmpty());
+        index.setAll(new ArrayList<>());
+        assertTrue(Double.isNaN(index.getLowestPrice()));
+    }
+
+    @Test
+    public void findsWordsInEveryFieldDespiteTypos() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        Product phone = product(1, "Điện thoại Samsung Galaxy", "Màn hình lớn");
+        phone.setTechnicalSpecifications("Pin 5000 mAh, sạc nhanh 25W");
+        Product charger = product(2, "Củ sạc nhanh", "Sạc cho điện thoại");
+        Product laptop = product(3, "Laptop Dell", "Bàn phím đèn nền");
+        laptop.setFullDescription("Máy tính xách tay cho dân văn phòng");
+        index.put(phone);
+        index.put(charger);
+        index.put(laptop);
+
+        // Not a substring of any name or brief description
+        assertIds(index.searchWords("pin 5000", new ArrayList<>()), 1);
+        assertIds(index.searchWords("van phong", new ArrayList<>()), 3);
+        // Misspelled
+        assertIds(index.searchWords("samsumg", new ArrayList<>()), 1);
+        assertIds(index.searchWords("dien thaoi", new ArrayList<>()), 1, 2);
+        // Substring matches already found are left out
+        assertIds(index.searchWords("laptop", new ArrayList<>()), 3);
+        assertIds(index.searchWords("laptop", index.search("laptop")));
+
+        // The charger has the words in its name, the phone only in its specifications
+        List<Product> substringMatches = index.search("sac nhanh");
+        List<Product> wordMatches = index.searchWords("sac nhanh", substringMatches);
+        assertIds(index.rankByRelevance(substringMatches, wordMatches, "sac nhanh"), 2, 1);
+    }
+
+    @Test
+    public void readsWordMatchesInPriceOrder() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.put(product(1, "Ốp lưng", "Cho điện thoại", 300));
+        index.put(product(2, "Điện thoại A", "Màn hình lớn", 100));
+        index.put(product(3, "Điện thoại B", "Pin trâu", 200));
+        index.put(product(4, "Sạc", "Cho điện thoại", 50));
+
+        assertIds(index.searchWordsInPriceOrder("dien thoai", new ArrayList<>(), 0, 1000), 4, 2, 3, 1);
+        assertIds(index.searchWordsInPriceOrder("dien thoai", new ArrayList<>(), 100, 200), 2, 3);
+        assertIds(index.searchWordsInPriceOrder("dien thoai", index.search("dien thoai a"), 0, 1000), 4, 3, 1);
+    }
+
+    @Test
+    public void ordersByKeyKeepingTiesInOrder() {
+        assertArrayEquals(new int[]{}, ProductSearchIndex.orderByKey(new int[]{}));
+        assertArrayEquals(new int[]{2, 0, 3, 1, 4},
+                ProductSearchIndex.orderByKey(new int[]{5, 0x7F000000, 1, 5, Integer.MAX_VALUE}));
+        assertArrayEquals(new int[]{0, 1, 2}, ProductSearchIndex.orderByKey(new int[]{7, 7, 7}));
+    }
+
+    @Test
+    public void boundsEditDistance() {
+        assertEquals(0, TermIndex.boundedDistance("laptop", "laptop", 1));
+        // A swap of two letters counts as one edit
+        assertEquals(1, TermIndex.boundedDistance("laptpo", "laptop", 2));
+        assertEquals(1, TermIndex.boundedDistance("thaoi", "thoai", 1));
+        assertEquals(1, TermIndex.boundedDistance("samsumg", "samsung", 1));
+        assertEquals(2, TermIndex.boundedDistance("keyboard", "mouse", 1));
+        assertArrayEquals(new String[]{"sac", "nhanh", "25w"}, TermIndex.tokenize("sac, nhanh (25w)"));
+    }
+
+    /**
+     * Every keystroke's search over a 50k catalog must fit in one frame, timed as the best of
+     * several runs so that noise does not fail the test
+     */
+    @Test
+    public void searchesLargeCatalogPerKeystroke() {
+        List<Product> catalog = new ArrayList<>();
+        for (long id = 1; id <= 50_000; id++) {
+            catalog.add(product(id, "Sản phẩm số " + id, "Mô tả ngắn cho sản phẩm " + (id % 977)));
+        }
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.setAll(catalog);
+
+        String[] keystrokes = {"s", "sa", "san", "san ", "san p", "san ph", "san pha", "san pham so 49999"};
+        long[] bestMicros = new long[keystrokes.length];
+        Arrays.fill(bestMicros, Long.MAX_VALUE);
+        int matched = 0;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            for (int i = 0; i < keystrokes.length; i++) {
+                long start = System.nanoTime();
+                matched = index.search(keystrokes[i]).size();
+                bestMicros[i] = Math.min(bestMicros[i], (System.nanoTime() - start) / 1000);
+            }
+        }
+
+        for (int i = 0; i < keystrokes.length; i++) {
+            assertTrue("'" + keystrokes[i] + "' took " + bestMicros[i] + " µs", bestMicros[i] < FRAME_BUDGET_MICROS);
+        }
+        assertEquals(1, matched);
+    }
+
+    private static Product product(long id, String name, String brief) {
+        return product(id, name, brief, id);
+    }
+
+    private static Product product(long id, String name, String brief, double price) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setBriefDescription(brief);
+        product.setPrice(price);
+        product.setCategory(new Category());
+        return product;
+    }
+
+    private static void assertIds(List<Product> products, long... ids) {
+        assertEquals(ids.length, products.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], (long) products.get(i).getProductId());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.salesapp.android.data.search;
+
+import com.salesapp.android.data.callback.ProductCallback;
+import com.salesapp.android.data.model.Product;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.*;
+
+/**
+ * Types into {@link SearchQueryPipeline} on a fake clock and answers its server searches by hand.
+ */
+public class SearchQueryPipelineTest {
+    private static final long DEBOUNCE_MS = 300;
+
+    private final FakeTimer timer = new FakeTimer();
+    private final List<FakeCall> remoteCalls = new ArrayList<>();
+    private final List<String> localQueries = new ArrayList<>();
+    private final List<String> remoteResults = new ArrayList<>();
+    private boolean catalogPartial = true;
+    private SearchQueryPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        pipeline = new SearchQueryPipeline(timer, DEBOUNCE_MS, 2,
+                (query, callback) -> {
+                    FakeCall call = new FakeCall(query, callback);
+                    remoteCalls.add(call);
+                    return call;
+                },
+                () -> catalogPartial,
+                new SearchQueryPipeline.Listener() {
+                    @Override
+                    public void onQuery(String query) {
+                        localQueries.add(query);
+                    }
+
+                    @Override
+                    public void onRemoteResults(String query, List<Product> products) {
+                        remoteResults.add(query);
+                    }
+                });
+    }
+
+    @Test
+    public void runsOnlyOnceTypingPauses() {
+        type("l", "la", "lap", "lapt", "lapto", "laptop");
+        timer.advance(DEBOUNCE_MS - 1);
+        assertTrue(localQueries.isEmpty());
+
+        timer.advance(1);
+        assertEquals(Collections.singletonList("laptop"), localQueries);
+        assertEquals(1, remoteCalls.size());
+        assertEquals("laptop", remoteCalls.get(0).query);
+    }
+
+    @Test
+    public void skipsQueriesEqualToTheLastOne() {
+        pipeline.onQueryChanged("laptop");
+        timer.advance(DEBOUNCE_MS);
+
+        // Typed and deleted again before the delay was up
+        type("laptops", "laptop");
+        timer.advance(DEBOUNCE_MS);
+        // Equal once case and surrounding spaces are folded
+        pipeline.onQueryChanged(" LAPTOP ");
+        timer.advance(DEBOUNCE_MS);
+
+        assertEquals(Collections.singletonList("laptop"), localQueries);
+        assertEquals(1, remoteCalls.size());
+    }
+
+    @Test
+    public void newerQueryCancelsServerSearchInFlight() {
+        pipeline.onQueryChanged("dien");
+        timer.advance(DEBOUNCE_MS);
+        pipeline.onQueryChanged("dien thoai");
+        timer.advance(DEBOUNCE_MS);
+
+        FakeCall older = remoteCalls.get(0);
+        FakeCall newer = remoteCalls.get(1);
+        assertTrue(older.isCanceled());
+        assertFalse(newer.isCanceled());
+        assertTrue(pipeline.isSearchingRemotely());
+
+        // A response that raced the cancellation is dropped
+        older.respond();
+        newer.respond();
+        assertEquals(Collections.singletonList("dien thoai"), remoteResults);
+        assertFalse(pipeline.isSearchingRemotely());
+    }
+
+    @Test
+    public void answersLocallyOnlyWhenCatalogIsComplete() {
+        pipeline.onQueryChanged("a");
+        timer.advance(DEBOUNCE_MS);
+        // Too short for the server
+        assertTrue(remoteCalls.isEmpty());
+
+        catalogPartial = false;
+        pipeline.onQueryChanged("laptop");
+        timer.advance(DEBOUNCE_MS);
+        assertEquals(2, localQueries.size());
+        assertTrue(remoteCalls.isEmpty());
+    }
+
+    @Test
+    public void submitSkipsTheDelayAndCancelDropsEverything() {
+        pipeline.onQueryChanged("tai");
+        pipeline.submit("tai nghe");
+        assertEquals(Collections.singletonList("tai nghe"), localQueries);
+        // The query typed before the submit never runs
+        timer.advance(DEBOUNCE_MS);
+        assertEquals(1, localQueries.size());
+
+        pipeline.onQueryChanged("tai nghe sony");
+        pipeline.cancel();
+        timer.advance(DEBOUNCE_MS);
+        assertEquals(1, localQueries.size());
+        assertTrue(remoteCalls.get(0).isCanceled());
+        remoteCalls.get(0).respond();
+        assertTrue(remoteResults.isEmpty());
+
+        // After a cancel, even the last query runs again
+        pipeline.submit("tai nghe");
+        assertEquals(2, localQueries.size());
+    }
+
+    /**
+     * Keystrokes 100 ms apart, quicker than the debounce delay
+     */
+    private void type(String... texts) {
+        for (String text : texts) {
+            timer.advance(100);
+            pipeline.onQueryChanged(text);
+        }
+    }
+
+    /**
+     * Runs posted tasks when the test moves the clock past their time
+     */
+    private static final class FakeTimer implements SearchQueryPipeline.Timer {
+        private final List<Object[]> tasks = new ArrayList<>();
+        private long now = 0;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            tasks.add(new Object[]{now + delayMillis, task});
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            tasks.removeIf(entry -> entry[1] == task);
+        }
+
+        void advance(long millis) {
+            now += millis;
+            for (Iterator<Object[]> it = tasks.iterator(); it.hasNext(); ) {
+                Object[] entry = it.next();
+                if ((long) entry[0] <= now) {
+                    it.remove();
+                    ((Runnable) entry[1]).run();
+                    // The task may have posted or removed others
+                    it = tasks.iterator();
+                }
+            }
+        }
+    }
+
+    /**
+     * A server search the test answers by hand. Like a real response racing a cancel, an
+     * answer still reaches the callback after the call is cancelled.
+     */
+    private static final class FakeCall implements Call<List<Product>> {
+        final String query;
+        private final ProductCallback<List<Product>> callback;
+        private boolean canceled = false;
+
+        FakeCall(String query, ProductCallback<List<Product>> callback) {
+            this.query = query;
+            this.callback = callback;
+        }
+
+        void respond() {
+            callback.onSuccess(new ArrayList<>());
+        }
+
+        @Override
+        public Response<List<Product>> execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback<List<Product>> callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<List<Product>> clone() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Request request() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+    }
+}
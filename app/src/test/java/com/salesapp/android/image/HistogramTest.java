@@ -0,0 +1,55 @@
+package com.salesapp.android.image;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void countsValuesIntoBuckets() {
+        Histogram histogram = new Histogram(10, 50, 100);
+        histogram.record(0);
+        histogram.record(10);
+        histogram.record(11);
+        histogram.record(100);
+        histogram.record(5000);
+
+        assertArrayEquals(new long[]{2, 1, 1, 1}, histogram.getCounts());
+        assertEquals(5, histogram.getCount());
+        assertEquals(5000, histogram.getMax());
+        assertEquals(1024.2, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void reportsPercentilesAsBucketBounds() {
+        Histogram histogram = new Histogram(10, 50, 100);
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(40);
+        }
+        histogram.record(700);
+
+        assertEquals(10, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(90));
+        assertEquals(50, histogram.getPercentile(99));
+        // The overflow bucket reports the largest value seen
+        assertEquals(700, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void neverReportsMoreThanTheLargestValue() {
+        Histogram histogram = new Histogram(10, 50, 100);
+        histogram.record(12);
+        assertEquals(12, histogram.getPercentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsortedBounds() {
+        new Histogram(10, 5);
+    }
+}
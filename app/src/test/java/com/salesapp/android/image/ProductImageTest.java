@@ -0,0 +1,42 @@
+package com.salesapp.android.image;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProductImageTest {
+
+    @Test
+    public void requestsVariantRoundedUpToSizeStep() {
+        ProductImage image = new ProductImage("https://example.com/images/1.jpg", 1L);
+        assertEquals("https://example.com/images/1.jpg?w=320&h=480", image.urlFor(300, 401));
+        // Nearby view sizes share one variant
+        assertEquals(image.urlFor(300, 401), image.urlFor(320, 470));
+        assertEquals("https://example.com/images/1.jpg?w=1280&h=1280", image.urlFor(4000, 3000));
+    }
+
+    @Test
+    public void keepsExistingQueryAndFragment() {
+        ProductImage image = new ProductImage("https://cdn.example.com/p.png?v=3#main", 2L);
+        assertEquals("https://cdn.example.com/p.png?v=3&w=160&h=160#main", image.urlFor(100, 100));
+    }
+
+    @Test
+    public void fallsBackToOriginalUrl() {
+        ProductImage image = new ProductImage("https://example.com/images/1.jpg", 1L);
+        // Target.SIZE_ORIGINAL
+        assertEquals(image.getUrl(), image.urlFor(Integer.MIN_VALUE, Integer.MIN_VALUE));
+        assertEquals(image.getUrl(), image.urlFor(0, 200));
+
+        ProductImage local = new ProductImage("file:///sdcard/1.jpg", 1L);
+        assertEquals(local.getUrl(), local.urlFor(300, 300));
+    }
+
+    @Test
+    public void equalsByUrlAndProduct() {
+        assertEquals(new ProductImage("https://example.com/a.jpg", 1L), new ProductImage("https://example.com/a.jpg", 1L));
+        assertEquals(new ProductImage("https://example.com/a.jpg", 1L).hashCode(),
+                new ProductImage("https://example.com/a.jpg", 1L).hashCode());
+        assertNotEquals(new ProductImage("https://example.com/a.jpg", 1L), new ProductImage("https://example.com/a.jpg", 2L));
+    }
+}
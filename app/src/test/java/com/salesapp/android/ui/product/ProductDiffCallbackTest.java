@@ -0,0 +1,204 @@
+package com.salesapp.android.ui.product;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.salesapp.android.data.model.Category;
+import com.salesapp.android.data.model.Product;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProductDiffCallbackTest {
+    private static final long FRAME_BUDGET_MICROS = 16_000;
+    private static final int BENCHMARK_ROUNDS = 10;
+
+    @Test
+    public void reportsOnlyChangedRows() {
+        List<Product> oldList = catalog(1000);
+        List<Product> newList = new ArrayList<>();
+        for (Product product : oldList) {
+            // Fresh copies, as every catalog refresh delivers
+            newList.add(copy(product));
+        }
+        newList.get(5).setPrice(1.5);
+        newList.remove(7);
+        newList.add(product(1001, "Sản phẩm mới", 2000));
+
+        UpdateCounter counter = diff(oldList, newList);
+        assertEquals(1, counter.changed);
+        assertEquals(1, counter.removed);
+        assertEquals(1, counter.inserted);
+        assertEquals(0, counter.moved);
+        // The row only needs its price text updated
+        assertEquals(Collections.singletonList((Object) ProductDiffCallback.CHANGED_PRICE), counter.payloads);
+    }
+
+    @Test
+    public void flagsOnlyTheChangedFields() {
+        Product before = product(1, "Laptop Dell", 900);
+        Product after = copy(before);
+        assertEquals(0, ProductDiffCallback.changes(before, after));
+
+        after.setPrice(850);
+        after.setImageURL("https://example.com/images/1-new.jpg");
+        assertEquals(ProductDiffCallback.CHANGED_PRICE | ProductDiffCallback.CHANGED_IMAGE,
+                ProductDiffCallback.changes(before, after));
+
+        after = copy(before);
+        after.setBriefDescription("Bàn phím đèn nền");
+        after.getCategory().setCategoryName("Máy tính");
+        assertEquals(ProductDiffCallback.CHANGED_DESCRIPTION | ProductDiffCallback.CHANGED_CATEGORY,
+                ProductDiffCallback.changes(before, after));
+    }
+
+    /**
+     * Scroll-jank check over a 10k-row grid. AsyncListDiffer computes the diff on a background
+     * thread and only dispatches the updates on the main thread, so dispatching must fit in a
+     * frame, both when a filter drops half the rows and when a refresh changes a few prices.
+     * A refresh is cheap enough to diff within a frame too. Each step is timed as the best of
+     * several runs, so noise does not fail the test while a slower algorithm still does.
+     */
+    @Test
+    public void diffsLargeListChangesWithinFrameBudget() {
+        List<Product> oldList = catalog(10_000);
+        List<Product> filtered = new ArrayList<>();
+        List<Product> refreshed = new ArrayList<>();
+        for (Product product : oldList) {
+            if (product.getProductId() % 2 == 0) {
+                filtered.add(product);
+            }
+            Product copy = copy(product);
+            if (product.getProductId() % 1000 == 0) {
+                copy.setPrice(copy.getPrice() + 1);
+            }
+            refreshed.add(copy);
+        }
+
+        DiffUtil.DiffResult filterResult = calculate(oldList, filtered);
+        long refreshMicros = Long.MAX_VALUE;
+        long dispatchMicros = Long.MAX_VALUE;
+        UpdateCounter filterUpdates = null;
+        UpdateCounter refreshUpdates = null;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            long start = System.nanoTime();
+            DiffUtil.DiffResult refreshResult = calculate(oldList, refreshed);
+            refreshMicros = Math.min(refreshMicros, (System.nanoTime() - start) / 1000);
+
+            start = System.nanoTime();
+            filterUpdates = new UpdateCounter();
+            filterResult.dispatchUpdatesTo(filterUpdates);
+            refreshUpdates = new UpdateCounter();
+            refreshResult.dispatchUpdatesTo(refreshUpdates);
+            dispatchMicros = Math.min(dispatchMicros, (System.nanoTime() - start) / 1000);
+        }
+
+        assertTrue("Refresh diff took " + refreshMicros + " µs", refreshMicros < FRAME_BUDGET_MICROS);
+        assertTrue("Dispatching took " + dispatchMicros + " µs", dispatchMicros < FRAME_BUDGET_MICROS);
+        assertEquals(5000, filterUpdates.removed);
+        assertEquals(0, filterUpdates.changed);
+        assertEquals(10, refreshUpdates.changed);
+        assertEquals(0, refreshUpdates.removed + refreshUpdates.inserted);
+    }
+
+    private static UpdateCounter diff(List<Product> oldList, List<Product> newList) {
+        UpdateCounter counter = new UpdateCounter();
+        calculate(oldList, newList).dispatchUpdatesTo(counter);
+        return counter;
+    }
+
+    private static DiffUtil.DiffResult calculate(List<Product> oldList, List<Product> newList) {
+        DiffUtil.ItemCallback<Product> itemCallback = new ProductDiffCallback();
+        // What AsyncListDiffer computes on its background thread
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return itemCallback.areItemsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return itemCallback.areContentsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                return itemCallback.getChangePayload(oldList.get(oldItemPosition), newList.get(newItemPosition));
+            }
+        }, false);
+    }
+
+    private static final class UpdateCounter implements ListUpdateCallback {
+        int inserted;
+        int removed;
+        int moved;
+        int changed;
+        final List<Object> payloads = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            changed += count;
+            payloads.add(payload);
+        }
+    }
+
+    private static List<Product> catalog(int size) {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            products.add(product(id, "Sản phẩm " + id, id * 10));
+        }
+        return products;
+    }
+
+    private static Product copy(Product product) {
+        Product copy = product(product.getProductId(), product.getProductName(), product.getPrice());
+        copy.setBriefDescription(product.getBriefDescription());
+        copy.setImageURL(product.getImageURL());
+        return copy;
+    }
+
+    private static Product product(long id, String name, double price) {
+        Category category = new Category();
+        category.setCategoryId(id % 5);
+        category.setCategoryName("Danh mục " + id % 5);
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setPrice(price);
+        product.setImageURL("https://example.com/images/" + id + ".jpg");
+        product.setCategory(category);
+        return product;
+    }
+}